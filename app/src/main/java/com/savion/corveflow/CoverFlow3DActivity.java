@@ -39,10 +39,12 @@ public class CoverFlow3DActivity extends AppCompatActivity implements Adapter.on
 
     private void initList() {
         mList = findViewById(R.id.list);
-        mList.set3DItem(true); //3D 滚动
-        mList.setIntervalRatio(-1);
-        mList.setFlatFlow(true);
-        mList.setLoop(); //循环滚动
+        mList.edit()
+                .set3DItem(true) //3D 滚动
+                .setIntervalRatio(-1)
+                .setFlatFlow(true)
+                .setLoop(true) //循环滚动
+                .commit();
         mList.setAdapter(new Adapter(this, this, true));
         mList.setOnItemSelectedListener(new CoverFlowLayoutManger.OnSelected() {
             @Override
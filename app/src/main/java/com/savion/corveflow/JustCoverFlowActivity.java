@@ -35,12 +35,14 @@ public class JustCoverFlowActivity extends AppCompatActivity implements Adapter.
 //        mList.setFlatFlow(true); //平面滚动
 //        mList.setGreyItem(true); //设置灰度渐变
 //        mList.setAlphaItem(true); //设置半透渐变
-        mList.setLoop(); //循环滚动，注：循环滚动模式暂不支持平滑滚动
-        mList.setFlatFlow(true);
-        mList.setIntervalRatio(1f);
-        mList.set3DItem(false);
-        mList.setAlphaItem(false);
-        mList.setOrientation(OrientationHelper.VERTICAL);
+        mList.edit() //多项配置一次生效
+                .setLoop(true) //循环滚动
+                .setFlatFlow(true)
+                .setIntervalRatio(1f)
+                .set3DItem(false)
+                .setAlphaItem(false)
+                .setOrientation(OrientationHelper.VERTICAL)
+                .commit();
         mList.setAdapter(new Adapter(this, this, false));
         mList.setOnItemSelectedListener(new CoverFlowLayoutManger.OnSelected() {
             @Override
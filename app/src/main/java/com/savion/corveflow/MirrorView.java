@@ -2,24 +2,33 @@ package com.savion.corveflow;
 
 import android.content.Context;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
-import android.graphics.Canvas;
-import android.graphics.LinearGradient;
-import android.graphics.Matrix;
-import android.graphics.Paint;
-import android.graphics.PorterDuff;
-import android.graphics.PorterDuffXfermode;
-import android.graphics.Shader;
 import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
 import android.util.AttributeSet;
+import android.view.ViewGroup;
 
 import com.bumptech.glide.load.resource.bitmap.GlideBitmapDrawable;
 
 import androidx.annotation.Nullable;
+import androidx.appcompat.content.res.AppCompatResources;
 import androidx.appcompat.widget.AppCompatImageView;
 
-public class MirrorView extends AppCompatImageView {
+/**
+ * 带倒影的ImageView
+ * <p>倒影由{@link ReflectionRenderer}在后台线程生成，生成完成前先显示原图；
+ * 相同来源与尺寸的倒影只生成一次，循环滚动回到同一张图片时直接使用缓存
+ */
+public class MirrorView extends AppCompatImageView implements ReflectionRenderer.Callback {
+
+    /**
+     * 当前需要显示的倒影
+     */
+    private String mReflectionKey;
+
+    /**
+     * 正在显示的倒影
+     */
+    private Bitmap mReflection;
 
     public MirrorView(Context context, AttributeSet attrs) {
         this(context, attrs, 0);
@@ -31,14 +40,14 @@ public class MirrorView extends AppCompatImageView {
 
     public MirrorView(Context context, AttributeSet attrs, int defStyle) {
         super(context, attrs, defStyle);
-        if (getDrawable() != null) {
-            doReflection(((BitmapDrawable) getDrawable()).getBitmap());
+        if (getDrawable() instanceof BitmapDrawable) {
+            doReflection(((BitmapDrawable) getDrawable()).getBitmap(), getDrawable());
         }
     }
 
     @Override
     public void setImageBitmap(Bitmap bm) {
-        doReflection(bm);
+        doReflection(bm, null);
     }
 
     @Override
@@ -46,54 +55,90 @@ public class MirrorView extends AppCompatImageView {
         if (drawable == null) return;
         if (drawable instanceof GlideBitmapDrawable) {
             Bitmap bitmap = ((GlideBitmapDrawable) drawable).getBitmap();
-            if (bitmap != null) doReflection(bitmap);
+            if (bitmap != null) doReflection(bitmap, drawable);
         } else {
-            super.setImageDrawable(drawable);
+            showPlain(null, drawable);
         }
     }
 
     @Override
     public void setImageResource(int resId) {
-        doReflection(BitmapFactory.decodeResource(getResources(), resId));
+        //按View的尺寸解码，倒影占去高度的1/3
+        int width = getTargetSize(getWidth(), getLayoutParams() != null ? getLayoutParams().width : 0);
+        int height = getTargetSize(getHeight(), getLayoutParams() != null ? getLayoutParams().height : 0) * 2 / 3;
+        String key = ReflectionRenderer.keyOf(resId, width, height);
+        if (key.equals(mReflectionKey)) {
+            return;
+        }
+        ReflectionRenderer renderer = ReflectionRenderer.getInstance();
+        Bitmap cached = renderer.getCached(key);
+        if (cached != null) {
+            showReflection(key, cached);
+            return;
+        }
+        //倒影按目标尺寸在后台解码生成，完成前先显示原图
+        showPlain(key, AppCompatResources.getDrawable(getContext(), resId));
+        renderer.render(getResources(), resId, width, height, key, this);
     }
 
-    private void doReflection(Bitmap originalImage) {
-        if (originalImage == null) return;
-        final int reflectionGap = 4;
-        int width = originalImage.getWidth();
-        int height = originalImage.getHeight();
-
-        Matrix matrix = new Matrix();
-        matrix.preScale(1, -1);
-
-        Bitmap reflectionImage = Bitmap.createBitmap(originalImage, 0,
-                height / 2, width, height / 2, matrix, false);
-
-        Bitmap bitmapWithReflection = Bitmap.createBitmap(width,
-                (height + height / 2), Bitmap.Config.ARGB_8888);
-
-        Canvas canvas = new Canvas(bitmapWithReflection);
-
-        canvas.drawBitmap(originalImage, 0, 0, null);
-
-        Paint defaultPaint = new Paint();
-        canvas.drawRect(0, height, width, height + reflectionGap, defaultPaint);
+    private static int getTargetSize(int measured, int layoutSize) {
+        if (measured > 0) {
+            return measured;
+        }
+        return layoutSize != ViewGroup.LayoutParams.MATCH_PARENT
+                && layoutSize != ViewGroup.LayoutParams.WRAP_CONTENT ? layoutSize : 0;
+    }
 
-        canvas.drawBitmap(reflectionImage, 0, height + reflectionGap, null);
+    /**
+     * @param plain 倒影生成前显示的原图，为null时由originalImage创建
+     */
+    private void doReflection(Bitmap originalImage, @Nullable Drawable plain) {
+        if (originalImage == null) return;
+        String key = ReflectionRenderer.keyOf(originalImage);
+        if (key.equals(mReflectionKey)) {
+            return;
+        }
+        ReflectionRenderer renderer = ReflectionRenderer.getInstance();
+        Bitmap cached = renderer.getCached(key);
+        if (cached != null) {
+            showReflection(key, cached);
+            return;
+        }
+        showPlain(key, plain != null ? plain : new BitmapDrawable(getResources(), originalImage));
+        renderer.render(originalImage, key, this);
+    }
 
-        Paint paint = new Paint();
-        LinearGradient shader = new LinearGradient(0,
-                originalImage.getHeight(), 0, bitmapWithReflection.getHeight()
-                + reflectionGap, 0x70ffffff, 0x00000000,
-                Shader.TileMode.MIRROR);
+    @Override
+    public void onReflectionReady(String key, Bitmap reflection) {
+        if (reflection != null && key.equals(mReflectionKey)) {
+            showReflection(key, reflection);
+        }
+    }
 
-        paint.setShader(shader);
+    /**
+     * 显示不带倒影的图片
+     *
+     * @param key 等待生成的倒影，为null时不再等待
+     */
+    private void showPlain(String key, Drawable drawable) {
+        releaseReflection();
+        mReflectionKey = key;
+        super.setImageDrawable(drawable);
+    }
 
-        paint.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.DST_IN));
+    private void showReflection(String key, Bitmap reflection) {
+        releaseReflection();
+        mReflectionKey = key;
+        mReflection = reflection;
+        ReflectionRenderer.getInstance().acquire(reflection);
+        super.setImageDrawable(new BitmapDrawable(getResources(), reflection));
+    }
 
-        canvas.drawRect(0, height, width, bitmapWithReflection.getHeight()
-                + reflectionGap, paint);
-        super.setImageDrawable(new BitmapDrawable(getResources(), bitmapWithReflection));
+    private void releaseReflection() {
+        if (mReflection != null) {
+            ReflectionRenderer.getInstance().release(mReflection);
+            mReflection = null;
+        }
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,360 @@
+package com.savion.corveflow;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.LinearGradient;
+import android.graphics.Paint;
+import android.graphics.PorterDuff;
+import android.graphics.PorterDuffXfermode;
+import android.graphics.Rect;
+import android.graphics.Shader;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.util.LruCache;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.WeakHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * {@link MirrorView}倒影的生成、缓存与复用
+ * <p>倒影在后台线程生成，完成后在主线程回调；生成的倒影按来源与尺寸保存在LRU缓存中，
+ * 循环滚动回到同一张图片时直接使用缓存；移出缓存且没有View正在显示的倒影按尺寸放回复用池，供之后生成时复用
+ * <p>除生成外的方法都只能在主线程调用
+ *
+ * @author savion
+ */
+final class ReflectionRenderer {
+
+    interface Callback {
+
+        /**
+         * 倒影生成完成，在主线程回调
+         *
+         * @param reflection 带倒影的图片，生成失败或来源图片在生成期间被修改时为null
+         */
+        void onReflectionReady(String key, Bitmap reflection);
+    }
+
+    private static final String TAG = "ReflectionRenderer";
+
+    private static final int REFLECTION_GAP = 4;
+
+    /**
+     * 复用池最多保存的图片个数
+     */
+    private static final int MAX_POOL_SIZE = 6;
+
+    private static ReflectionRenderer sInstance;
+
+    /**
+     * 为每个来源Bitmap分配的唯一编号，Bitmap被回收后自动移除
+     */
+    private static final WeakHashMap<Bitmap, Integer> sBitmapIds = new WeakHashMap<>();
+    private static int sNextBitmapId = 0;
+
+    private final Executor mExecutor = Executors.newSingleThreadExecutor();
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * 已生成的倒影，大小为可用内存的1/8
+     */
+    private final LruCache<String, Bitmap> mCache;
+
+    /**
+     * 正在被View显示的倒影及显示它的View个数
+     */
+    private final WeakHashMap<Bitmap, Integer> mInUse = new WeakHashMap<>();
+
+    /**
+     * 已移出缓存、但仍在显示的倒影，不再显示后放回复用池
+     */
+    private final WeakHashMap<Bitmap, Boolean> mEvicted = new WeakHashMap<>();
+
+    /**
+     * 正在生成的倒影，相同来源的请求只生成一次
+     */
+    private final HashMap<String, ArrayList<Callback>> mPending = new HashMap<>();
+
+    /**
+     * 按尺寸保存的可复用图片，由生成线程取用，需要同步
+     */
+    private final HashMap<Long, ArrayDeque<Bitmap>> mPool = new HashMap<>();
+    private int mPoolSize = 0;
+
+    /*
+     * 以下对象只在生成线程中使用
+     */
+    private final Canvas mCanvas = new Canvas();
+    private final Paint mGapPaint = new Paint();
+    private final Paint mMaskPaint = new Paint();
+    private final Rect mHalfRect = new Rect();
+    private int mShaderTop = -1;
+    private int mShaderBottom = -1;
+
+    private ReflectionRenderer() {
+        int maxKb = (int) (Runtime.getRuntime().maxMemory() / 1024 / 8);
+        mCache = new LruCache<String, Bitmap>(maxKb) {
+            @Override
+            protected int sizeOf(String key, Bitmap value) {
+                return value.getAllocationByteCount() / 1024;
+            }
+
+            @Override
+            protected void entryRemoved(boolean evicted, String key, Bitmap oldValue, Bitmap newValue) {
+                if (mInUse.containsKey(oldValue)) {
+                    mEvicted.put(oldValue, Boolean.TRUE);
+                } else {
+                    recycle(oldValue);
+                }
+            }
+        };
+        mMaskPaint.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.DST_IN));
+    }
+
+    static ReflectionRenderer getInstance() {
+        if (sInstance == null) {
+            sInstance = new ReflectionRenderer();
+        }
+        return sInstance;
+    }
+
+    /**
+     * 图片来源的缓存key，不同的Bitmap对象key一定不同，同一个Bitmap对象内容被修改后key也会变化
+     */
+    static String keyOf(Bitmap source) {
+        Integer id = sBitmapIds.get(source);
+        if (id == null) {
+            id = sNextBitmapId++;
+            sBitmapIds.put(source, id);
+        }
+        return "bitmap:" + id + "/" + source.getGenerationId()
+                + "@" + source.getWidth() + "x" + source.getHeight();
+    }
+
+    /**
+     * 资源图片的缓存key
+     *
+     * @param width  解码的目标宽度
+     * @param height 解码的目标高度
+     */
+    static String keyOf(int resId, int width, int height) {
+        return "res:" + resId + "@" + width + "x" + height;
+    }
+
+    Bitmap getCached(String key) {
+        return mCache.get(key);
+    }
+
+    /**
+     * View开始显示倒影，显示期间倒影不会被复用
+     */
+    void acquire(Bitmap reflection) {
+        Integer count = mInUse.get(reflection);
+        mInUse.put(reflection, count == null ? 1 : count + 1);
+    }
+
+    /**
+     * View不再显示倒影
+     */
+    void release(Bitmap reflection) {
+        Integer count = mInUse.get(reflection);
+        if (count == null) {
+            return;
+        }
+        if (count > 1) {
+            mInUse.put(reflection, count - 1);
+            return;
+        }
+        mInUse.remove(reflection);
+        if (mEvicted.remove(reflection) != null) {
+            recycle(reflection);
+        }
+    }
+
+    /**
+     * 为已解码的图片生成倒影
+     */
+    void render(final Bitmap source, final String key, Callback callback) {
+        if (enqueue(key, callback)) {
+            return;
+        }
+        final int generation = source.getGenerationId();
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                Bitmap reflection = null;
+                try {
+                    reflection = drawReflection(source);
+                } catch (RuntimeException | OutOfMemoryError e) {
+                    //来源图片在生成期间被回收或内存不足，保持显示原图
+                    Log.w(TAG, "Failed to render reflection " + key, e);
+                }
+                if (reflection != null && (source.isRecycled() || source.getGenerationId() != generation)) {
+                    recycle(reflection);
+                    reflection = null;
+                }
+                deliver(key, reflection);
+            }
+        });
+    }
+
+    /**
+     * 按目标尺寸解码资源图片并生成倒影，解码出的原图生成后即回收
+     *
+     * @param width  目标宽度，小于等于0时不限制
+     * @param height 目标高度，小于等于0时不限制
+     */
+    void render(final Resources res, final int resId, final int width, final int height,
+                final String key, Callback callback) {
+        if (enqueue(key, callback)) {
+            return;
+        }
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                Bitmap reflection = null;
+                Bitmap source = null;
+                try {
+                    source = decode(res, resId, width, height);
+                    if (source != null) {
+                        reflection = drawReflection(source);
+                    }
+                } catch (RuntimeException | OutOfMemoryError e) {
+                    //解码或生成失败时仍然回调，移除等待中的请求，View保持显示原图
+                    Log.w(TAG, "Failed to render reflection " + key, e);
+                } finally {
+                    if (source != null) {
+                        source.recycle();
+                    }
+                }
+                deliver(key, reflection);
+            }
+        });
+    }
+
+    /**
+     * 记录回调
+     *
+     * @return 相同的倒影是否已在生成中
+     */
+    private boolean enqueue(String key, Callback callback) {
+        ArrayList<Callback> callbacks = mPending.get(key);
+        if (callbacks != null) {
+            callbacks.add(callback);
+            return true;
+        }
+        callbacks = new ArrayList<>(2);
+        callbacks.add(callback);
+        mPending.put(key, callbacks);
+        return false;
+    }
+
+    private void deliver(final String key, final Bitmap reflection) {
+        mMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (reflection != null) {
+                    mCache.put(key, reflection);
+                }
+                ArrayList<Callback> callbacks = mPending.remove(key);
+                if (callbacks != null) {
+                    for (int i = 0; i < callbacks.size(); i++) {
+                        callbacks.get(i).onReflectionReady(key, reflection);
+                    }
+                }
+            }
+        });
+    }
+
+    private static Bitmap decode(Resources res, int resId, int width, int height) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeResource(res, resId, options);
+        int sampleSize = 1;
+        if (width > 0 && height > 0) {
+            while (options.outWidth / (sampleSize * 2) >= width
+                    && options.outHeight / (sampleSize * 2) >= height) {
+                sampleSize *= 2;
+            }
+        }
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = sampleSize;
+        return BitmapFactory.decodeResource(res, resId, options);
+    }
+
+    /**
+     * 在生成线程中绘制：原图、4px间隔、下半部分的翻转，再叠加渐隐遮罩
+     * <p>翻转直接通过画布变换绘制，不再创建翻转后的中间图片
+     */
+    private Bitmap drawReflection(Bitmap source) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        int outHeight = height + height / 2;
+        Bitmap out = obtain(width, outHeight);
+        mCanvas.setBitmap(out);
+        mCanvas.drawBitmap(source, 0, 0, null);
+        mCanvas.drawRect(0, height, width, height + REFLECTION_GAP, mGapPaint);
+        mCanvas.save();
+        mCanvas.translate(0, 2 * height + REFLECTION_GAP);
+        mCanvas.scale(1, -1);
+        mHalfRect.set(0, height - height / 2, width, height);
+        mCanvas.drawBitmap(source, mHalfRect, mHalfRect, null);
+        mCanvas.restore();
+        if (mShaderTop != height || mShaderBottom != outHeight + REFLECTION_GAP) {
+            mShaderTop = height;
+            mShaderBottom = outHeight + REFLECTION_GAP;
+            mMaskPaint.setShader(new LinearGradient(0, mShaderTop, 0, mShaderBottom,
+                    0x70ffffff, 0x00000000, Shader.TileMode.MIRROR));
+        }
+        mCanvas.drawRect(0, height, width, outHeight + REFLECTION_GAP, mMaskPaint);
+        mCanvas.setBitmap(null);
+        return out;
+    }
+
+    /**
+     * 从复用池中取出指定尺寸的图片并清空，没有时新建
+     */
+    private Bitmap obtain(int width, int height) {
+        synchronized (mPool) {
+            ArrayDeque<Bitmap> bitmaps = mPool.get(poolKey(width, height));
+            Bitmap bitmap = bitmaps != null ? bitmaps.poll() : null;
+            if (bitmap != null) {
+                mPoolSize--;
+                bitmap.eraseColor(Color.TRANSPARENT);
+                return bitmap;
+            }
+        }
+        return Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+    }
+
+    /**
+     * 将不再使用的图片放回复用池，池满时直接丢弃
+     */
+    private void recycle(Bitmap bitmap) {
+        synchronized (mPool) {
+            if (mPoolSize >= MAX_POOL_SIZE || bitmap.isRecycled()) {
+                return;
+            }
+            long key = poolKey(bitmap.getWidth(), bitmap.getHeight());
+            ArrayDeque<Bitmap> bitmaps = mPool.get(key);
+            if (bitmaps == null) {
+                bitmaps = new ArrayDeque<>();
+                mPool.put(key, bitmaps);
+            }
+            bitmaps.offer(bitmap);
+            mPoolSize++;
+        }
+    }
+
+    private static long poolKey(int width, int height) {
+        return ((long) width << 32) | height;
+    }
+}
@@ -46,6 +46,7 @@ public class MyFragment extends Fragment {
         mIndex = ((TextView)rootView.findViewById(R.id.index));
 //        mList.setFlatFlow(true); //平面滚动
         mList.setGreyItem(true); //设置灰度渐变
+        mList.setUseSharedViewPool(true); //多个页面共享Item缓存
 //        mList.setAlphaItem(true); //设置半透渐变
         mList.setAdapter(new Adapter(getActivity(), false));
         mList.setOnItemSelectedListener(new CoverFlowLayoutManger.OnSelected() {
@@ -0,0 +1,71 @@
+package com.savion.corverflow;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+/**
+ * 基准测试共用的布局状态：1080px的可见空间，Item尺寸在默认尺寸附近随机，模拟一次连续滚动的偏移量序列
+ *
+ * @author savion
+ */
+@State(Scope.Benchmark)
+public class CoverFlowState {
+
+    static final int SPACE = 1080;
+    static final int ITEM_SIZE = 400;
+    static final float RATIO = 0.5f;
+
+    /**
+     * 每次调用前进的偏移量个数，取2的幂以便取模
+     */
+    static final int FRAMES = 1024;
+
+    @Param({"10", "1000", "1000000"})
+    public int itemCount;
+
+    @Param({"false", "true"})
+    public boolean loop;
+
+    CoverFlowGeometry geometry;
+    TransformCurves curves;
+    float rotationScale;
+
+    /**
+     * 每帧的总偏移量，每帧滚动约1/3个间隔，循环模式下可超出Item范围
+     */
+    long[] offsets;
+
+    int frame;
+
+    @Setup
+    public void setup() {
+        geometry = new CoverFlowGeometry();
+        geometry.getIndex().reset(itemCount, ITEM_SIZE, RATIO);
+        geometry.setLoop(loop);
+        Random random = new Random(42);
+        int measured = Math.min(itemCount, 1000);
+        for (int i = 0; i < measured; i++) {
+            geometry.getIndex().setSize(random.nextInt(itemCount), ITEM_SIZE - 100 + random.nextInt(200));
+        }
+        int start = (SPACE - ITEM_SIZE) / 2;
+        curves = TransformCurves.obtain(SPACE, ITEM_SIZE, RATIO, start);
+        rotationScale = TransformCurves.getRotationScale(geometry.getIndex().getTotal());
+
+        offsets = new long[FRAMES];
+        long base = geometry.getCenterOffset(itemCount / 2);
+        int step = Math.round(ITEM_SIZE * RATIO / 3f);
+        for (int i = 0; i < FRAMES; i++) {
+            long offset = base + (i - FRAMES / 2) * step * (loop ? 4 : 1);
+            offsets[i] = geometry.clampOffset(offset);
+        }
+    }
+
+    long nextOffset() {
+        frame = (frame + 1) & (FRAMES - 1);
+        return offsets[frame];
+    }
+}
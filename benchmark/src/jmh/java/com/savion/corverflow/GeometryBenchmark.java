@@ -0,0 +1,59 @@
+package com.savion.corverflow;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * {@link CoverFlowGeometry}每帧计算的基准测试
+ * <p>运行：./gradlew :benchmark:jmh，结果（ops/s与gc分配速率）输出到 benchmark/build/reports/jmh/results.json
+ *
+ * @author savion
+ */
+public class GeometryBenchmark {
+
+    /**
+     * 一帧的布局：确定可见范围，并计算每个可见Item的位置
+     */
+    @Benchmark
+    public void frame(CoverFlowState state, Blackhole bh) {
+        CoverFlowGeometry geometry = state.geometry;
+        long offset = state.nextOffset();
+        int first = geometry.getFirstVisible(offset, CoverFlowState.SPACE);
+        int last = geometry.getLastVisible(offset, CoverFlowState.SPACE, first);
+        for (int i = first; i <= last; i++) {
+            bh.consume(geometry.getScreenStart(i, offset, CoverFlowState.SPACE));
+            bh.consume(geometry.getItemSize(i));
+        }
+    }
+
+    /**
+     * 可见范围
+     */
+    @Benchmark
+    public int visibleWindow(CoverFlowState state) {
+        CoverFlowGeometry geometry = state.geometry;
+        long offset = state.nextOffset();
+        int first = geometry.getFirstVisible(offset, CoverFlowState.SPACE);
+        return geometry.getLastVisible(offset, CoverFlowState.SPACE, first) - first;
+    }
+
+    /**
+     * 居中位置与对齐，停止滚动与惯性滑动时执行
+     */
+    @Benchmark
+    public long centerAndSnap(CoverFlowState state) {
+        long offset = state.nextOffset();
+        return state.geometry.getPositionAt(offset) + state.geometry.getSnapOffset(offset);
+    }
+
+    /**
+     * 循环模式的位置映射：虚拟位置→Adapter位置、圈数、最近的等价位置
+     */
+    @Benchmark
+    public int loopPositionMapping(CoverFlowState state) {
+        CoverFlowGeometry geometry = state.geometry;
+        int center = geometry.getPositionAt(state.nextOffset());
+        int position = CoverFlowGeometry.toAdapterPosition(center + 7, state.itemCount);
+        return position + geometry.getLap(center) + geometry.getNearestPosition(center, position);
+    }
+}
@@ -0,0 +1,33 @@
+package com.savion.corverflow;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * 缩放、半透、灰度、3D旋转曲线查表的基准测试，每次调用处理一帧中所有可见Item
+ *
+ * @author savion
+ */
+public class TransformCurvesBenchmark {
+
+    @Benchmark
+    public void curves(CoverFlowState state, Blackhole bh) {
+        CoverFlowGeometry geometry = state.geometry;
+        TransformCurves curves = state.curves;
+        float rotationScale = state.rotationScale;
+        long offset = state.nextOffset();
+        int first = geometry.getFirstVisible(offset, CoverFlowState.SPACE);
+        int last = geometry.getLastVisible(offset, CoverFlowState.SPACE, first);
+        float centerLine = CoverFlowState.SPACE / 2f;
+        for (int i = first; i <= last; i++) {
+            //与布局时相同：Item中点到布局中线的距离
+            float distance = geometry.getScreenStart(i, offset, CoverFlowState.SPACE)
+                    + geometry.getItemSize(i) / 2f - centerLine;
+            int sample = curves.indexOf(distance);
+            bh.consume(curves.getScale(sample));
+            bh.consume(curves.getAlpha(sample));
+            bh.consume(curves.getGrey(sample));
+            bh.consume(distance < 0 ? curves.getRotation(sample, rotationScale) : -curves.getRotation(sample, rotationScale));
+        }
+    }
+}
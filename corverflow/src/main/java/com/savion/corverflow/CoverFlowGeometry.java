@@ -0,0 +1,301 @@
+package com.savion.corverflow;
+
+/**
+ * CoverFlow的几何计算
+ * <p>位置与偏移量的换算、循环模式下的取模映射、可见范围、对齐与惯性目标都在这里计算，
+ * 只使用基本类型，不依赖Android，结果完全由输入决定，可以直接在JVM上测试
+ * <p>偏移量为主轴方向的总偏移量，Item 0 居中时为0，使用64位整数精确计算，Item很多或长时间循环滚动也不会溢出或产生误差；
+ * 位置为虚拟位置，循环模式下可能为负值或大于Item总数
+ *
+ * @author savion
+ */
+final class CoverFlowGeometry {
+
+    /**
+     * Adapter数据结构变化类型
+     */
+    static final int UPDATE_ADD = 1;
+    static final int UPDATE_REMOVE = 2;
+    static final int UPDATE_MOVE = 3;
+
+    /**
+     * 各Item尺寸与偏移量的索引
+     */
+    private final ItemOffsetIndex mIndex = new ItemOffsetIndex();
+
+    /**
+     * 是否无限循环
+     */
+    private boolean mLoop = false;
+
+    ItemOffsetIndex getIndex() {
+        return mIndex;
+    }
+
+    void setLoop(boolean loop) {
+        mLoop = loop;
+    }
+
+    boolean isLoop() {
+        return mLoop;
+    }
+
+    int getCount() {
+        return mIndex.getCount();
+    }
+
+    /**
+     * 虚拟位置对应的Item居中时的总偏移量
+     * <p>Item 0 居中时偏移量为0，相邻两个Item居中时的偏移量相差两者间隔的平均值
+     */
+    long getCenterOffset(int index) {
+        int count = mIndex.getCount();
+        if (count <= 0) {
+            return 0;
+        }
+        int lap = floorDiv(index, count);
+        int position = index - lap * count;
+        return lap * mIndex.getTotal() + mIndex.getStart(position)
+                + (mIndex.getExtent(position) - mIndex.getExtent(0)) / 2;
+    }
+
+    /**
+     * 获取间隔区间包含该偏移量的Item虚拟位置，即该偏移量下最靠近中间的Item
+     */
+    int getPositionAt(long offset) {
+        long total = mIndex.getTotal();
+        if (total <= 0) {
+            return 0;
+        }
+        long shifted = offset + mIndex.getExtent(0) / 2;
+        long lap = floorDiv(shifted, total);
+        return (int) (lap * mIndex.getCount() + mIndex.findPosition(shifted - lap * total));
+    }
+
+    /**
+     * 非循环模式下的最大偏移量，即最后一个Item居中时的偏移量
+     */
+    long getMaxOffset() {
+        return getCenterOffset(mIndex.getCount() - 1);
+    }
+
+    /**
+     * 非循环模式下将偏移量限制在 [0, 最大偏移量]，循环模式下不限制
+     */
+    long clampOffset(long offset) {
+        if (mLoop) {
+            return offset;
+        }
+        return Math.max(0, Math.min(offset, getMaxOffset()));
+    }
+
+    /**
+     * 对齐后的偏移量，即该偏移量下最靠近中间的Item居中时的偏移量
+     */
+    long getSnapOffset(long offset) {
+        return getCenterOffset(getPositionAt(offset));
+    }
+
+    /**
+     * 虚拟位置对应Item的主轴尺寸
+     */
+    int getItemSize(int index) {
+        int count = mIndex.getCount();
+        return count > 0 ? mIndex.getSize(index - floorDiv(index, count) * count) : 0;
+    }
+
+    /**
+     * Item在滚动坐标中主轴方向的起点，Item在可见空间内居中摆放
+     *
+     * @param space 主轴方向的可见空间
+     */
+    long getFrameStart(int index, int space) {
+        return getCenterOffset(index) + Math.round((space - getItemSize(index)) * 1.0f / 2);
+    }
+
+    /**
+     * Item在滚动坐标中的位置与可见区域 [offset, offset + space) 是否相交
+     */
+    boolean isFrameVisible(int index, long offset, int space) {
+        long start = getFrameStart(index, space);
+        long end = start + getItemSize(index);
+        return start < offset + space && end > offset;
+    }
+
+    /**
+     * 可见的第一个Item位置
+     * <p>Item中心与可见区域中心的距离不会超过 (可见区域大小 + 最大Item尺寸) / 2，
+     * 先以此在索引中查出候选范围，再去掉实际不可见的Item
+     *
+     * @return 没有可见Item时大于{@link #getLastVisible(long, int, int)}的结果
+     */
+    int getFirstVisible(long offset, int space) {
+        if (mIndex.getCount() <= 0 || mIndex.getTotal() <= 0) {
+            return 0;
+        }
+        int reach = getVisibleReach(space);
+        int first = getPositionAt(offset - reach);
+        int last = getPositionAt(offset + reach);
+        if (!mLoop) {
+            first = Math.max(first, 0);
+            last = Math.min(last, mIndex.getCount() - 1);
+        }
+        while (first <= last && !isFrameVisible(first, offset, space)) {
+            first++;
+        }
+        return first;
+    }
+
+    /**
+     * 可见的最后一个Item位置
+     *
+     * @param first {@link #getFirstVisible(long, int)}的结果
+     * @return 没有可见Item时小于first
+     */
+    int getLastVisible(long offset, int space, int first) {
+        if (mIndex.getCount() <= 0 || mIndex.getTotal() <= 0) {
+            return first - 1;
+        }
+        int last = getPositionAt(offset + getVisibleReach(space));
+        if (!mLoop) {
+            last = Math.min(last, mIndex.getCount() - 1);
+        }
+        while (last >= first && !isFrameVisible(last, offset, space)) {
+            last--;
+        }
+        return last;
+    }
+
+    private int getVisibleReach(int space) {
+        return (space + mIndex.getMaxSize()) / 2 + 1;
+    }
+
+    /**
+     * 平滑滚动的目标位置：循环模式下取离居中Item最近的等价位置，沿较短的方向绕圈；非循环模式下限制在Item范围内
+     *
+     * @param center   当前居中的虚拟位置
+     * @param position 目标位置，循环模式下任意等价位置均可
+     */
+    int getNearestPosition(int center, int position) {
+        int count = mIndex.getCount();
+        if (count <= 0) {
+            return 0;
+        }
+        if (!mLoop) {
+            return Math.max(0, Math.min(position, count - 1));
+        }
+        int delta = toAdapterPosition(position - center, count);
+        return center + (delta > count / 2 ? delta - count : delta);
+    }
+
+    /**
+     * 惯性滑动的目标位置
+     *
+     * @param offset    当前偏移量
+     * @param distance  预测的惯性滑动距离
+     * @param direction 惯性方向，正值表示偏移量增加的方向
+     * @param maxItems  最多经过的Item个数，小于等于0时不限制
+     */
+    int getFlingTarget(long offset, long distance, int direction, int maxItems) {
+        int center = getPositionAt(offset);
+        int target = getPositionAt(offset + distance);
+        //目标必须在惯性方向上，不能往回滚
+        if (direction > 0 && getCenterOffset(target) < offset) {
+            target++;
+        } else if (direction < 0 && getCenterOffset(target) > offset) {
+            target--;
+        }
+        if (maxItems > 0) {
+            target = Math.max(center - maxItems, Math.min(target, center + maxItems));
+        }
+        if (!mLoop) {
+            target = Math.max(0, Math.min(target, mIndex.getCount() - 1));
+        }
+        return target;
+    }
+
+    /**
+     * 虚拟位置所在的圈数
+     */
+    int getLap(int index) {
+        int count = mIndex.getCount();
+        return count > 0 ? floorDiv(index, count) : 0;
+    }
+
+    /**
+     * 整圈的总偏移量
+     */
+    long getLapOffset(int lap) {
+        return lap * mIndex.getTotal();
+    }
+
+    /**
+     * Item在屏幕上主轴方向的起点，只有这一步把64位偏移量转换为int像素
+     *
+     * @param offset 当前总偏移量
+     */
+    int getScreenStart(int index, long offset, int space) {
+        return (int) (getFrameStart(index, space) - offset);
+    }
+
+    /**
+     * 将循环模式下的虚拟位置转换为Adapter中的位置
+     */
+    static int toAdapterPosition(int index, int count) {
+        if (count <= 0) {
+            return 0;
+        }
+        int position = index % count;
+        return position < 0 ? position + count : position;
+    }
+
+    /**
+     * 计算Adapter数据结构变化后，虚拟位置对应的新虚拟位置，循环模式下保持所在的圈数不变
+     *
+     * @param op 变化类型{@link #UPDATE_ADD}、{@link #UPDATE_REMOVE}、{@link #UPDATE_MOVE}
+     * @return 新的虚拟位置，被移除的Item返回代替它的Item位置
+     */
+    static int remapIndex(int index, int oldCount, int newCount, int op, int start, int count, int to) {
+        int lap = floorDiv(index, oldCount);
+        int position = index - lap * oldCount;
+        if (op == UPDATE_ADD) {
+            if (position >= start) {
+                position += count;
+            }
+        } else if (op == UPDATE_REMOVE) {
+            if (position >= start + count) {
+                position -= count;
+            } else if (position >= start) {
+                position = Math.min(start, newCount - 1);
+            }
+        } else {
+            if (position == start) {
+                position = to;
+            } else if (start < position && to >= position) {
+                position--;
+            } else if (start > position && to <= position) {
+                position++;
+            }
+        }
+        return lap * newCount + position;
+    }
+
+    /**
+     * 向下取整的整数除法，循环模式下偏移量可能为负值
+     */
+    static int floorDiv(int x, int y) {
+        int q = x / y;
+        if ((x % y != 0) && ((x ^ y) < 0)) {
+            q--;
+        }
+        return q;
+    }
+
+    static long floorDiv(long x, long y) {
+        long q = x / y;
+        if ((x % y != 0) && ((x ^ y) < 0)) {
+            q--;
+        }
+        return q;
+    }
+}
@@ -1,23 +1,26 @@
 package com.savion.corverflow;
 
-import android.animation.Animator;
-import android.animation.ValueAnimator;
+import android.app.ActivityManager;
+import android.content.Context;
 import android.graphics.ColorMatrix;
 import android.graphics.ColorMatrixColorFilter;
 import android.graphics.Paint;
+import android.graphics.PointF;
 import android.graphics.Rect;
-import android.util.Log;
-import android.util.SparseArray;
-import android.util.SparseBooleanArray;
+import android.util.AttributeSet;
 import android.view.View;
 import android.view.ViewGroup;
 import android.view.animation.AccelerateDecelerateInterpolator;
 import android.view.animation.DecelerateInterpolator;
 import android.view.animation.Interpolator;
+import android.widget.Scroller;
 
 import androidx.recyclerview.widget.OrientationHelper;
 import androidx.recyclerview.widget.RecyclerView;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+
 /**
  * Cover Flow布局类
  * <p>通过重写LayoutManger布局方法{@link #onLayoutChildren(RecyclerView.Recycler, RecyclerView.State)}
@@ -31,7 +34,8 @@ import androidx.recyclerview.widget.RecyclerView;
  * @Datetime 2020-06-09
  */
 
-public class CoverFlowLayoutManger extends RecyclerView.LayoutManager {
+public class CoverFlowLayoutManger extends RecyclerView.LayoutManager
+        implements RecyclerView.SmoothScroller.ScrollVectorProvider {
 
     /**
      * item orientation==HORIZONTAL时表示向右移动
@@ -46,15 +50,70 @@ public class CoverFlowLayoutManger extends RecyclerView.LayoutManager {
     private final static int SCROLL_TO_START = 2;
 
     /**
-     * 最大存储item信息存储数量，
-     * 超过设置数量，则动态计算来获取
+     * 一次布局中因Item尺寸变化而重新布局的最大次数
+     */
+    private final static int MAX_LAYOUT_PASSES = 3;
+
+    /**
+     * 灰度渐变的量化级数，每一级对应一个预先创建的灰度画笔
+     */
+    private final static int GREY_LEVEL_COUNT = 32;
+
+    /**
+     * 滚动过程中最多同时开启的硬件图层个数
+     */
+    private final static int MAX_MOTION_LAYERS = 8;
+
+    /**
+     * 滚动过程中硬件图层最多占用应用内存上限（{@link ActivityManager#getMemoryClass()}）的几分之一
+     */
+    private final static int MOTION_LAYER_MEMORY_DIVISOR = 8;
+
+    /**
+     * 惯性滑动对齐滚动的最短与最长时长
+     */
+    private final static int MIN_FLING_DURATION = 150;
+    private final static int MAX_FLING_DURATION = 1500;
+
+    /**
+     * 默认预取的Item个数
+     */
+    private final static int DEFAULT_PREFETCH_ITEM_COUNT = 2;
+
+    /**
+     * 默认的远距离滚动阈值，平滑滚动超过该Item个数时先瞬移到目标附近
+     */
+    private final static int DEFAULT_LONG_JUMP_ITEMS = 10;
+
+    /**
+     * 远距离滚动时瞬移后实际动画的Item个数
+     */
+    private final static int LONG_JUMP_ANIMATED_ITEMS = 3;
+
+    /**
+     * 两次布局间隔超过该时长时不计算滚动速度
+     */
+    private final static long METRICS_VELOCITY_WINDOW_NANOS = 100_000_000L;
+
+    /**
+     * 默认滚动插值器，插值器无状态，可在多次滚动间共享
+     */
+    private final static Interpolator DEFAULT_INTERPOLATOR = new DecelerateInterpolator();
+
+    /**
+     * 没有需要还原的居中Item，循环模式下虚拟位置可以为负，不能用-1
+     */
+    private static final int NO_CENTER = Integer.MIN_VALUE;
+
+    /**
+     * 随机滚动插值器
      */
-    private final static int MAX_RECT_COUNT = 100;
+    private final static Interpolator RANDOM_INTERPOLATOR = new AccelerateDecelerateInterpolator();
 
     /**
      * 滑动总偏移量
      */
-    private int mOffsetAll = 0;
+    private long mOffsetAll = 0;
 
     /**
      * Item宽
@@ -82,14 +141,83 @@ public class CoverFlowLayoutManger extends RecyclerView.LayoutManager {
     private int mStartY = 0;
 
     /**
-     * 保存所有的Item的上下左右的偏移量信息
+     * Item位置信息的复用对象，由{@link #getFrame(int, Rect)}写入，避免每次计算都创建新的Rect
+     */
+    private final Rect mItemFrame = new Rect();
+
+    /**
+     * 位置与偏移量的几何计算，不依赖Android
+     */
+    private final CoverFlowGeometry mGeometry = new CoverFlowGeometry();
+
+    /**
+     * 各Item尺寸与偏移量的索引，支持不同尺寸的Item
+     */
+    private final ItemOffsetIndex mOffsetIndex = mGeometry.getIndex();
+
+    /**
+     * 按量化灰度级缓存的画笔，首次使用时创建，之后不再修改，所有实例共享
+     */
+    private final static Paint[] sGreyPaints = new Paint[GREY_LEVEL_COUNT];
+
+    /**
+     * 缩放、半透、灰度、3D旋转的曲线表，由{@link #updateTransformCurves()}在配置变化时更新
+     */
+    private TransformCurves mCurves;
+
+    /**
+     * 计算3D旋转归一化系数时的Item总间隔
+     */
+    private long mRotationTotal = -1;
+
+    /**
+     * Item绘制顺序，下标为绘制次序，值为child下标，离中线越远的Item越先绘制
+     * <p>由{@link #updateDrawOrder()}在每次布局后按需更新，供{@link RecyclerCoverFlow#getChildDrawingOrder(int, int)}直接读取
+     */
+    private int[] mDrawOrder = new int[0];
+
+    /**
+     * 计算绘制顺序时，按虚拟位置查找child下标的复用表
+     */
+    private int[] mChildIndexByPosition = new int[0];
+
+    /**
+     * 计算绘制顺序时的child个数与居中位置，两者都不变且没有Item增减时不需要重新计算
+     */
+    private int mDrawOrderCount = 0;
+    private int mDrawOrderCenter = 0;
+    private boolean mDrawOrderDirty = true;
+
+    /**
+     * 是否通过setTranslationZ控制Item的叠放顺序，由RenderThread按Z值排序绘制
      */
-    private SparseArray<Rect> mAllItemFrames = new SparseArray<>();
+    private boolean mTranslationZOrder = false;
 
     /**
-     * 记录Item是否出现过屏幕且还没有回收。true表示出现过屏幕上，并且还没被回收
+     * 当前可见范围内第一个Item的位置，由{@link #computeVisibleWindow()}计算，循环模式下可能为负值
      */
-    private SparseBooleanArray mHasAttachedItems = new SparseBooleanArray();
+    private int mFirstVisibleIndex = 0;
+
+    /**
+     * 当前可见范围内最后一个Item的位置，小于{@link #mFirstVisibleIndex}时表示没有可见Item
+     */
+    private int mLastVisibleIndex = -1;
+
+    /**
+     * 可见范围内各位置是否已有添加的Item，下标为位置减去{@link #mFirstVisibleIndex}，只在容量不足时重新分配
+     */
+    private boolean[] mAttachedInWindow = new boolean[0];
+
+    /**
+     * 下一次布局是否需要全部重新布局，否则只对变化的Item做增量布局
+     */
+    private boolean mFullLayoutRequired = true;
+
+    /**
+     * 上一次全量布局时的宽高，尺寸变化时需要全量布局
+     */
+    private int mLayoutWidth = 0;
+    private int mLayoutHeight = 0;
 
     /**
      * RecyclerView的Item回收器
@@ -102,9 +230,87 @@ public class CoverFlowLayoutManger extends RecyclerView.LayoutManager {
     private RecyclerView.State mState;
 
     /**
-     * 滚动动画
+     * 是否正在进行由{@link #startScroll}发起的滚动
+     */
+    private boolean mProgrammaticScroll = false;
+
+    /**
+     * 滚动的终点偏移量、距离、时长与插值器，Adapter数据变化时终点会随之修正，并在布局后重新发起滚动
+     */
+    private long mScrollTo = 0;
+    private int mScrollDistance = 0;
+    private int mScrollDuration = 0;
+    private Interpolator mScrollInterpolator;
+    private boolean mScrollRetargetPending = false;
+
+    /**
+     * 当前滚动是否锁定了手势，滚动停止后恢复
+     */
+    private boolean mScrollLocksGesture = false;
+
+    /**
+     * RecyclerView当前的滚动状态
+     */
+    private int mScrollState = RecyclerView.SCROLL_STATE_IDLE;
+
+    /**
+     * 是否在滚动过程中为Item开启硬件图层
+     */
+    private boolean mMotionLayerEnabled = false;
+
+    /**
+     * 是否处于滚动过程中，且已为Item开启了硬件图层
+     */
+    private boolean mInMotion = false;
+
+    /**
+     * 本次滚动中已开启的硬件图层个数及上限
+     */
+    private int mMotionLayerCount = 0;
+    private int mMaxMotionLayers = 0;
+
+    /**
+     * 所在的RecyclerView，用于处理惯性滑动
+     */
+    private RecyclerView mRecyclerView;
+
+    /**
+     * 根据惯性速度预测滑动距离，与RecyclerView默认的惯性滑动距离一致
+     */
+    private Scroller mFlingPredictor;
+
+    /**
+     * 一次惯性滑动最多经过的Item个数，小于等于0时不限制
+     */
+    private int mMaxFlingItems = 0;
+
+    /**
+     * 预取的Item个数：滚动时沿滚动方向预取可见范围外的Item，嵌套在列表中时预取居中Item两侧的Item
+     */
+    private int mPrefetchItemCount = DEFAULT_PREFETCH_ITEM_COUNT;
+
+    /**
+     * 平滑滚动超过该Item个数时，先瞬移到目标附近的等价偏移量，只动画最后几个Item，小于等于0时不瞬移
+     */
+    private int mLongJumpItems = DEFAULT_LONG_JUMP_ITEMS;
+
+    /**
+     * 从窗口移除时是否回收所有Item
      */
-    private ValueAnimator mAnimation;
+    private boolean mRecycleChildrenOnDetach = false;
+
+    /**
+     * 接管RecyclerView的惯性滑动，直接滚动到预测的对齐位置
+     */
+    private final RecyclerView.OnFlingListener mFlingListener = new RecyclerView.OnFlingListener() {
+        @Override
+        public boolean onFling(int velocityX, int velocityY) {
+            CoverFlowTrace.begin(CoverFlowTrace.SNAP);
+            boolean handled = flingToSnap(isHorizontal() ? velocityX : velocityY);
+            CoverFlowTrace.end();
+            return handled;
+        }
+    };
 
     /**
      * 正显示在中间的Item
@@ -122,20 +328,49 @@ public class CoverFlowLayoutManger extends RecyclerView.LayoutManager {
      */
     private OnSelected mSelectedListener;
 
+    /**
+     * 布局性能指标监听，为null时不计时
+     */
+    private CoverFlowMetricsListener mMetricsListener;
+
+    /**
+     * 当前布局中创建、换到新位置、回收、添加的Item个数，每次布局后清零
+     */
+    private int mMetricCreated;
+    private int mMetricRebound;
+    private int mMetricRecycled;
+    private int mMetricAttached;
+
+    /**
+     * 上一次回调指标时的偏移量与时间，用于计算滚动速度
+     */
+    private long mMetricLastOffset;
+    private long mMetricLastNanos;
+
+    /**
+     * 下一次布局的来源{@link CoverFlowMetricsListener#SOURCE_LAYOUT}等
+     */
+    private int mLayoutSource = CoverFlowMetricsListener.SOURCE_LAYOUT;
+
+    /**
+     * 当前的程序滚动是否由惯性滑动发起
+     */
+    private boolean mScrollFromFling = false;
+
     /**
      * 是否为平面滚动，Item之间没有叠加，也没有缩放
      */
     private boolean mIsFlatFlow = false;
 
     /**
-     * 是否启动Item灰度值渐变
+     * Item变换器，内置效果在前，自定义效果在后，按顺序执行
      */
-    private boolean mItemGradualGrey = false;
+    private ItemTransformer[] mTransformers;
 
     /**
-     * 是否启动Item半透渐变
+     * 变换属性的复用对象，每个Item布局时重置
      */
-    private boolean mItemGradualAlpha = false;
+    private final ItemTransform mTransform = new ItemTransform();
 
     /**
      * 是否无限循环
@@ -143,9 +378,15 @@ public class CoverFlowLayoutManger extends RecyclerView.LayoutManager {
     private boolean mIsLoop = false;
 
     /**
-     * 是否启动Item 3D 倾斜
+     * 当前生效的配置，{@link #edit()}在此基础上修改
      */
-    private boolean mItem3D = false;
+    private Builder mConfig;
+
+    /**
+     * 配置修改后需要在全量布局中还原的居中Item位置
+     */
+    private int mPendingCenterIndex = NO_CENTER;
+
     private static final long smoothScrollDuration = 500;
     /**
      * @author savion
@@ -160,27 +401,138 @@ public class CoverFlowLayoutManger extends RecyclerView.LayoutManager {
      **/
     private int orientation = OrientationHelper.VERTICAL;
 
-    private CoverFlowLayoutManger(boolean isFlat, boolean isGreyItem,
-                                  boolean isAlphaItem, float cstInterval,
-                                  boolean isLoop, boolean is3DItem, int orientation) {
-        mIsFlatFlow = isFlat;
-        mItemGradualGrey = isGreyItem;
-        mItemGradualAlpha = isAlphaItem;
-        mIsLoop = isLoop;
-        mItem3D = is3DItem;
-        this.orientation = orientation;
+    private CoverFlowLayoutManger(Builder builder) {
+        applyConfig(new Builder(builder));
+    }
+
+    /**
+     * 开始一次配置修改，修改完成后调用{@link Editor#commit()}统一生效
+     * <p>只修改已有的布局器，不需要重新创建，多项修改最多触发一次重新布局，居中的Item保持不变
+     */
+    public Editor edit() {
+        return new Editor(new Builder(mConfig));
+    }
+
+    /**
+     * 将配置写入各字段，构造与{@link Editor#commit()}共用
+     */
+    private void applyConfig(Builder config) {
+        mConfig = config;
+        mIsFlatFlow = config.isFlat;
+        mTranslationZOrder = config.translationZOrder;
+        mIsLoop = config.isLoop;
+        mGeometry.setLoop(mIsLoop);
+        mMotionLayerEnabled = config.motionLayer;
+        mMaxFlingItems = config.maxFlingItems;
+        mPrefetchItemCount = config.prefetchItemCount;
+        mLongJumpItems = config.longJumpItems;
+        this.orientation = config.orientation;
+        ArrayList<ItemTransformer> all = new ArrayList<>();
+        if (!config.isFlat) { //不是平面普通滚动的情况下才进行缩放
+            all.add(ItemTransformers.SCALE);
+        }
+        if (config.isAlphaItem) {
+            all.add(ItemTransformers.ALPHA);
+        }
+        if (config.isGreyItem) {
+            all.add(ItemTransformers.GREY);
+        }
+        if (config.is3DItem) {
+            all.add(ItemTransformers.ROTATION_3D);
+        }
+        all.addAll(config.transformers);
+        mTransformers = all.toArray(new ItemTransformer[0]);
+        float cstInterval = config.cstIntervalRatio;
         if (cstInterval >= 0) {
             mIntervalRatio = cstInterval;
         } else {
-            if (mIsFlatFlow) {
-                mIntervalRatio = 1.1f;
+            mIntervalRatio = mIsFlatFlow ? 1.1f : 0.5f;
+        }
+    }
+
+    /**
+     * 应用修改后的配置
+     * <p>间隔、方向、循环变化时记录居中的Item，在下一次全量布局中还原；
+     * 变换效果变化时将已添加的Item恢复原状，由下一次布局重新写入
+     */
+    private void commitConfig(Builder config) {
+        boolean wasLoop = mIsLoop;
+        int oldOrientation = orientation;
+        float oldRatio = mIntervalRatio;
+        boolean oldZOrder = mTranslationZOrder;
+        ItemTransformer[] oldTransformers = mTransformers;
+        int center = mRecycle != null && mOffsetIndex.getCount() > 0 ? getCenterPosition() : NO_CENTER;
+
+        applyConfig(config);
+
+        if (wasLoop != mIsLoop || oldOrientation != orientation || oldRatio != mIntervalRatio) {
+            if (center != NO_CENTER) {
+                //关闭循环时虚拟位置可能超出Adapter范围
+                mPendingCenterIndex = mIsLoop ? center : toAdapterPosition(center);
             }
+            //Item间隔随方向、比例变化，索引需要重建
+            mOffsetIndex.reset(0, 0, mIntervalRatio);
+            mFullLayoutRequired = true;
+            mDrawOrderDirty = true;
+            if (mRecyclerView != null) {
+                //进行中的滚动距离按旧配置计算，直接停止；索引已清空，停止时不会再发起对齐滚动
+                mRecyclerView.stopScroll();
+            }
+        }
+        if (oldOrientation != orientation || oldZOrder != mTranslationZOrder
+                || !Arrays.equals(oldTransformers, mTransformers)) {
+            endMotionLayers();
+            for (int i = getChildCount() - 1; i >= 0; i--) {
+                resetChildTransform(getChildAt(i));
+            }
+            mDrawOrderDirty = true;
+        }
+        if (!mMotionLayerEnabled) {
+            endMotionLayers();
         }
+        requestLayout();
+    }
+
+    /**
+     * 将Item恢复为未变换的状态
+     */
+    private static void resetChildTransform(View child) {
+        child.setScaleX(1f);
+        child.setScaleY(1f);
+        child.setAlpha(1f);
+        child.setRotationX(0f);
+        child.setRotationY(0f);
+        child.setTranslationX(0f);
+        child.setTranslationY(0f);
+        child.setTranslationZ(0f);
+        child.setLayerType(View.LAYER_TYPE_NONE, null);
+        ((LayoutParams) child.getLayoutParams()).resetTransformState();
     }
 
     @Override
     public RecyclerView.LayoutParams generateDefaultLayoutParams() {
-        return new RecyclerView.LayoutParams(ViewGroup.LayoutParams.WRAP_CONTENT, ViewGroup.LayoutParams.WRAP_CONTENT);
+        return new LayoutParams(ViewGroup.LayoutParams.WRAP_CONTENT, ViewGroup.LayoutParams.WRAP_CONTENT);
+    }
+
+    @Override
+    public RecyclerView.LayoutParams generateLayoutParams(Context c, AttributeSet attrs) {
+        return new LayoutParams(c, attrs);
+    }
+
+    @Override
+    public RecyclerView.LayoutParams generateLayoutParams(ViewGroup.LayoutParams lp) {
+        if (lp instanceof RecyclerView.LayoutParams) {
+            return new LayoutParams((RecyclerView.LayoutParams) lp);
+        } else if (lp instanceof ViewGroup.MarginLayoutParams) {
+            return new LayoutParams((ViewGroup.MarginLayoutParams) lp);
+        } else {
+            return new LayoutParams(lp);
+        }
+    }
+
+    @Override
+    public boolean checkLayoutParams(RecyclerView.LayoutParams lp) {
+        return lp instanceof LayoutParams;
     }
 
     public boolean isVertical() {
@@ -193,16 +545,32 @@ public class CoverFlowLayoutManger extends RecyclerView.LayoutManager {
 
     @Override
     public void onLayoutChildren(RecyclerView.Recycler recycler, RecyclerView.State state) {
+        CoverFlowTrace.begin(CoverFlowTrace.LAYOUT_CHILDREN);
+        try {
+            layoutChildren(recycler, state);
+        } finally {
+            CoverFlowTrace.end();
+        }
+    }
+
+    private void layoutChildren(RecyclerView.Recycler recycler, RecyclerView.State state) {
         //如果没有item，直接返回
         //跳过preLayout，preLayout主要用于支持动画
         if (getItemCount() <= 0 || state.isPreLayout()) {
             mOffsetAll = 0;
             return;
         }
-        mAllItemFrames.clear();
-        mHasAttachedItems.clear();
 
-        //得到子view的宽和高，这边的item的宽高都是一样的，所以只需要进行一次测量
+        if (!mFullLayoutRequired && mRecycle != null && mOffsetIndex.getCount() == getItemCount()
+                && mLayoutWidth == getWidth() && mLayoutHeight == getHeight()) {
+            layoutChangedItems(recycler, state);
+            return;
+        }
+        mFullLayoutRequired = false;
+        mLayoutWidth = getWidth();
+        mLayoutHeight = getHeight();
+
+        //得到第一个子view的宽和高，作为未测量Item的默认尺寸，其余Item在添加时测量并更新索引
         View scrap = recycler.getViewForPosition(0);
         addView(scrap);
         measureChildWithMargins(scrap, 0, 0);
@@ -211,29 +579,24 @@ public class CoverFlowLayoutManger extends RecyclerView.LayoutManager {
         mDecoratedChildHeight = getDecoratedMeasuredHeight(scrap);
         mStartX = Math.round((getHorizontalSpace() - mDecoratedChildWidth) * 1.0f / 2);
         mStartY = Math.round((getVerticalSpace() - mDecoratedChildHeight) * 1.0f / 2);
-
-        float offset = isVertical() ? mStartY : mStartX;
-
-        /**只存{@link MAX_RECT_COUNT}个item具体位置*/
-        for (int i = 0; i < getItemCount() && i < MAX_RECT_COUNT; i++) {
-            Rect frame = mAllItemFrames.get(i);
-            if (frame == null) {
-                frame = new Rect();
-            }
-            if (isVertical()) {
-                //纵向布局
-                frame.set(mStartX, Math.round(offset), mStartX + mDecoratedChildWidth, Math.round(offset + mDecoratedChildHeight));
-            } else {
-                //横向布局
-                frame.set(Math.round(offset), mStartY, Math.round(offset + mDecoratedChildWidth), mStartY + mDecoratedChildHeight);
-            }
-            mAllItemFrames.put(i, frame);
-            mHasAttachedItems.put(i, false);
-            offset = offset + getIntervalDistance(); //原始位置累加，否则越后面误差越大
+        int defaultSize = isVertical() ? mDecoratedChildHeight : mDecoratedChildWidth;
+        if (mOffsetIndex.getCount() != getItemCount() || mOffsetIndex.getDefaultSize() != defaultSize
+                || mOffsetIndex.getRatio() != mIntervalRatio) {
+            mOffsetIndex.reset(getItemCount(), defaultSize, mIntervalRatio);
         }
 
+        for (int i = getChildCount() - 1; i >= 0; i--) {
+            //放入Scrap的Item可能被回收，先关闭滚动图层并计数，重新添加时按需开启
+            View child = getChildAt(i);
+            clearMotionLayer(child, (LayoutParams) child.getLayoutParams());
+        }
         detachAndScrapAttachedViews(recycler); //在布局之前，将所有的子View先Detach掉，放入到Scrap缓存中
-        if ((mRecycle == null || mState == null) && //在为初始化前调用smoothScrollToPosition 或者 scrollToPosition,只会记录位置
+        if (mPendingCenterIndex != NO_CENTER) {
+            //配置修改前居中的Item保持居中
+            mOffsetAll = getCenterOffset(mPendingCenterIndex);
+            mPendingCenterIndex = NO_CENTER;
+            onSelectedCallBack();
+        } else if ((mRecycle == null || mState == null) && //在为初始化前调用smoothScrollToPosition 或者 scrollToPosition,只会记录位置
                 mSelectPosition != 0) {                 //所以初始化时需要滚动到对应位置
             mOffsetAll = calculateOffsetForPosition(mSelectPosition);
             onSelectedCallBack();
@@ -245,6 +608,122 @@ public class CoverFlowLayoutManger extends RecyclerView.LayoutManager {
         mState = state;
     }
 
+    /**
+     * 增量布局：只回收被移除的Item，重新绑定内容变化的Item，其余已添加的Item保持不动，只更新位置
+     * <p>Item的虚拟位置与总偏移量已在{@link #onItemsAdded}等回调中修正
+     */
+    private void layoutChangedItems(RecyclerView.Recycler recycler, RecyclerView.State state) {
+        for (int i = getChildCount() - 1; i >= 0; i--) {
+            View child = getChildAt(i);
+            LayoutParams lp = (LayoutParams) child.getLayoutParams();
+            if (lp.isItemRemoved() || lp.isItemChanged()) {
+                //移除的Item直接回收，变化的Item回收后由layoutItems重新获取并绑定
+                clearMotionLayer(child, lp);
+                lp.boundPosition = RecyclerView.NO_POSITION; //重新添加时在原位置也计为换到新位置
+                removeAndRecycleView(child, recycler);
+                mMetricRecycled++;
+                mDrawOrderDirty = true;
+            }
+        }
+        layoutItems(recycler, state, SCROLL_TO_START);
+        onSelectedCallBack();
+        mRecycle = recycler;
+        mState = state;
+        if (mScrollRetargetPending) {
+            //终点已随数据变化修正，按剩余距离重新发起滚动
+            mScrollRetargetPending = false;
+            if (mProgrammaticScroll && mScrollDistance != 0) {
+                int duration = (int) ((long) mScrollDuration * Math.abs(mScrollTo - mOffsetAll) / Math.abs(mScrollDistance));
+                startScroll(mScrollTo, Math.max(duration, MIN_FLING_DURATION), mScrollInterpolator, mScrollLocksGesture, false);
+            }
+        }
+    }
+
+    @Override
+    public void onItemsAdded(RecyclerView recyclerView, int positionStart, int itemCount) {
+        onItemsStructureChanged(CoverFlowGeometry.UPDATE_ADD, positionStart, itemCount, 0);
+    }
+
+    @Override
+    public void onItemsRemoved(RecyclerView recyclerView, int positionStart, int itemCount) {
+        onItemsStructureChanged(CoverFlowGeometry.UPDATE_REMOVE, positionStart, itemCount, 0);
+    }
+
+    @Override
+    public void onItemsMoved(RecyclerView recyclerView, int from, int to, int itemCount) {
+        onItemsStructureChanged(CoverFlowGeometry.UPDATE_MOVE, from, itemCount, to);
+    }
+
+    @Override
+    public void onItemsUpdated(RecyclerView recyclerView, int positionStart, int itemCount) {
+        //内容变化的Item在增量布局时重新绑定，位置不变，不需要额外处理
+    }
+
+    @Override
+    public void onItemsChanged(RecyclerView recyclerView) {
+        //notifyDataSetChanged无法得知具体变化，需要全量布局
+        mFullLayoutRequired = true;
+    }
+
+    /**
+     * Adapter插入、移除或移动Item后，更新偏移量索引，并修正总偏移量、滚动动画、选中位置
+     * 以及已添加Item的虚拟位置，使居中的Item保持不动
+     *
+     * @param op    变化类型
+     * @param start 起始位置，移动时为原位置
+     * @param count 变化的Item个数
+     * @param to    移动时的目标位置
+     */
+    private void onItemsStructureChanged(int op, int start, int count, int to) {
+        int oldCount = mOffsetIndex.getCount();
+        if (mFullLayoutRequired || mRecycle == null || oldCount <= 0) {
+            mFullLayoutRequired = true;
+            return;
+        }
+        int newCount = op == CoverFlowGeometry.UPDATE_ADD ? oldCount + count : op == CoverFlowGeometry.UPDATE_REMOVE ? oldCount - count : oldCount;
+        if (newCount <= 0) {
+            mFullLayoutRequired = true;
+            return;
+        }
+
+        //先记录各偏移量相对所在Item居中位置的差值，索引更新后按新的Item位置还原
+        int centerIndex = getVirtualPositionAt(mOffsetAll);
+        long centerDelta = mOffsetAll - getCenterOffset(centerIndex);
+        int toIndex = getVirtualPositionAt(mScrollTo);
+        long toDelta = mScrollTo - getCenterOffset(toIndex);
+
+        if (op == CoverFlowGeometry.UPDATE_ADD) {
+            mOffsetIndex.insert(start, count);
+        } else if (op == CoverFlowGeometry.UPDATE_REMOVE) {
+            mOffsetIndex.remove(start, count);
+        } else {
+            mOffsetIndex.move(start, to);
+        }
+
+        int centerPosition = CoverFlowGeometry.toAdapterPosition(centerIndex, oldCount);
+        if (op == CoverFlowGeometry.UPDATE_REMOVE && centerPosition >= start && centerPosition < start + count) {
+            centerDelta = 0; //居中的Item被移除，由其后的Item居中
+        }
+        mOffsetAll = getCenterOffset(CoverFlowGeometry.remapIndex(centerIndex, oldCount, newCount, op, start, count, to)) + centerDelta;
+        if (mProgrammaticScroll) {
+            mScrollTo = getCenterOffset(CoverFlowGeometry.remapIndex(toIndex, oldCount, newCount, op, start, count, to)) + toDelta;
+            mScrollRetargetPending = true;
+        }
+        if (!mIsLoop) {
+            mOffsetAll = mGeometry.clampOffset(mOffsetAll);
+        }
+
+        mSelectPositionNature = CoverFlowGeometry.remapIndex(mSelectPositionNature, oldCount, newCount, op, start, count, to);
+        mSelectPosition = CoverFlowGeometry.toAdapterPosition(mSelectPositionNature, newCount);
+        mLastSelectPosition = mSelectPosition;
+
+        for (int i = getChildCount() - 1; i >= 0; i--) {
+            LayoutParams lp = (LayoutParams) getChildAt(i).getLayoutParams();
+            lp.virtualPosition = CoverFlowGeometry.remapIndex(lp.virtualPosition, oldCount, newCount, op, start, count, to);
+        }
+        mDrawOrderDirty = true;
+    }
+
     @Override
     public int scrollVerticallyBy(int dy, RecyclerView.Recycler recycler, RecyclerView.State state) {
         if (isVertical()) {
@@ -262,21 +741,21 @@ public class CoverFlowLayoutManger extends RecyclerView.LayoutManager {
     }
 
     private int scrollByGesture(int transDistance, RecyclerView.Recycler recycler, RecyclerView.State state) {
-        if (mAnimation != null && mAnimation.isRunning()) {
-            mAnimation.cancel();
-        }
         int travel = transDistance;
         if (!mIsLoop) {
             //非循环模式，限制滚动位置
             if (transDistance + mOffsetAll < 0) {
-                travel = -mOffsetAll;
+                travel = (int) -mOffsetAll;
             } else if (transDistance + mOffsetAll > getMaxOffset()) {
                 travel = (int) (getMaxOffset() - mOffsetAll);
             }
         }
         //累计偏移量
         mOffsetAll += travel;
+        mLayoutSource = getScrollSource();
+        CoverFlowTrace.begin(CoverFlowTrace.SCROLL[mLayoutSource]);
         layoutItems(recycler, state, transDistance > 0 ? SCROLL_TO_START : SCROLL_TO_END);
+        CoverFlowTrace.end();
         return travel;
     }
 
@@ -285,87 +764,281 @@ public class CoverFlowLayoutManger extends RecyclerView.LayoutManager {
      *
      * <p>1，先清除已经超出屏幕的item
      * <p>2，再绘制可以显示在屏幕里面的item
+     * <p>如果新添加的Item测量后尺寸与索引中的不同，索引更新后重新布局一次
      */
     private void layoutItems(RecyclerView.Recycler recycler,
                              RecyclerView.State state, int scrollDirection) {
         if (state == null || state.isPreLayout()) {
             return;
         }
+        CoverFlowTrace.begin(CoverFlowTrace.LAYOUT_ITEMS);
+        CoverFlowMetricsListener listener = mMetricsListener;
+        long start = listener != null ? System.nanoTime() : 0L;
+        int passes = 0;
+        while (fillVisibleItems(recycler, scrollDirection) && ++passes < MAX_LAYOUT_PASSES) {
+            //Item尺寸变化后，其后Item的位置都发生了变化，需要重新布局
+        }
+        updateDrawOrder();
+        CoverFlowTrace.end();
+        if (CoverFlowTrace.ENABLED) {
+            CoverFlowTrace.counter(CoverFlowTrace.COUNTER_ATTACHED, getChildCount());
+            CoverFlowTrace.counter(CoverFlowTrace.COUNTER_CENTER, toAdapterPosition(getCenterPosition()));
+            CoverFlowTrace.counter(CoverFlowTrace.COUNTER_REBOUND, mMetricRebound);
+        }
+        if (listener != null) {
+            dispatchMetrics(listener, start);
+        }
+        mMetricCreated = 0;
+        mMetricRebound = 0;
+        mMetricRecycled = 0;
+        mMetricAttached = 0;
+        mLayoutSource = CoverFlowMetricsListener.SOURCE_LAYOUT;
+    }
 
-        Rect displayFrame = null;
-        if (isVertical()) {
-            //纵向
-            displayFrame = new Rect(0, mOffsetAll, getHorizontalSpace(), mOffsetAll + getVerticalSpace());
-        } else {
-            //横向
-            displayFrame = new Rect(mOffsetAll, 0, mOffsetAll + getHorizontalSpace(), getVerticalSpace());
+    /**
+     * 回调本次布局的指标
+     */
+    private void dispatchMetrics(CoverFlowMetricsListener listener, long start) {
+        long now = System.nanoTime();
+        int velocity = 0;
+        long elapsed = now - mMetricLastNanos;
+        if (mMetricLastNanos != 0L && elapsed > 0 && elapsed < METRICS_VELOCITY_WINDOW_NANOS) {
+            velocity = (int) ((mOffsetAll - mMetricLastOffset) * 1_000_000_000L / elapsed);
         }
+        mMetricLastOffset = mOffsetAll;
+        mMetricLastNanos = now;
+        listener.onLayoutPass(now - start, mMetricCreated, mMetricRebound, mMetricRecycled, mMetricAttached,
+                mOffsetAll, velocity, mLayoutSource);
+    }
 
-        int position = 0;
-        for (int i = 0; i < getChildCount(); i++) {
-            View child = getChildAt(i);
-            if (child.getTag() != null) {
-                TAG tag = checkTag(child.getTag());
-                position = tag.pos;
-            } else {
-                position = getPosition(child);
+    /**
+     * 滚动布局的来源
+     */
+    private int getScrollSource() {
+        if (mScrollState == RecyclerView.SCROLL_STATE_DRAGGING) {
+            return CoverFlowMetricsListener.SOURCE_GESTURE;
+        }
+        if (mProgrammaticScroll) {
+            return mScrollFromFling ? CoverFlowMetricsListener.SOURCE_FLING : CoverFlowMetricsListener.SOURCE_ANIMATION;
+        }
+        //未被对齐处理的惯性滑动由RecyclerView自身驱动
+        return mScrollState == RecyclerView.SCROLL_STATE_SETTLING
+                ? CoverFlowMetricsListener.SOURCE_FLING : CoverFlowMetricsListener.SOURCE_ANIMATION;
+    }
+
+    /**
+     * 居中位置或已添加的Item变化后，重新计算绘制顺序：从两端向中间，离中线越远越先绘制，居中的Item最后绘制
+     * <p>开启{@link #mTranslationZOrder}时，同时按离中线的距离设置Item的Z值
+     */
+    private void updateDrawOrder() {
+        int center = getCenterPosition();
+        int childCount = getChildCount();
+        if (!mDrawOrderDirty && center == mDrawOrderCenter && childCount == mDrawOrderCount) {
+            return;
+        }
+        mDrawOrderDirty = false;
+        mDrawOrderCenter = center;
+        mDrawOrderCount = childCount;
+        if (mDrawOrder.length < childCount) {
+            mDrawOrder = new int[childCount];
+        }
+        if (childCount == 0) {
+            return;
+        }
+
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (int i = 0; i < childCount; i++) {
+            int position = ((LayoutParams) getChildAt(i).getLayoutParams()).virtualPosition;
+            min = Math.min(min, position);
+            max = Math.max(max, position);
+        }
+        int range = max - min + 1;
+        if (mChildIndexByPosition.length < range) {
+            mChildIndexByPosition = new int[range];
+        }
+        for (int i = 0; i < range; i++) {
+            mChildIndexByPosition[i] = -1;
+        }
+        for (int i = 0; i < childCount; i++) {
+            mChildIndexByPosition[((LayoutParams) getChildAt(i).getLayoutParams()).virtualPosition - min] = i;
+        }
+
+        int order = 0;
+        int left = min;
+        int right = max;
+        while (left <= right) {
+            int position = center - left >= right - center ? left++ : right--;
+            int index = mChildIndexByPosition[position - min];
+            if (index < 0) {
+                continue;
+            }
+            mDrawOrder[order++] = index;
+            if (mTranslationZOrder) {
+                View child = getChildAt(index);
+                float z = -Math.abs(position - center);
+                if (child.getTranslationZ() != z) {
+                    child.setTranslationZ(z);
+                }
             }
+        }
+        if (order != childCount) {
+            //虚拟位置有重复（数据变化后还未重新布局），按原顺序绘制
+            for (int i = 0; i < childCount; i++) {
+                mDrawOrder[i] = i;
+            }
+        }
+    }
+
+    /**
+     * 获取第i次绘制的child下标，该方法主要用于{@link RecyclerCoverFlow#getChildDrawingOrder(int, int)}
+     *
+     * @param childCount RecyclerView中child的个数，包括执行动画中的View
+     * @param i          绘制次序
+     */
+    int getChildDrawingOrder(int childCount, int i) {
+        if (childCount != mDrawOrderCount || i >= childCount) {
+            //有不受LayoutManager管理的View（如移除动画中的View），按原顺序绘制
+            return i;
+        }
+        return mDrawOrder[i];
+    }
 
-            Rect rect = getFrame(position);
+    /**
+     * 回收可见范围外的Item，更新可见Item的位置，并添加新进入可见范围的Item
+     *
+     * @return 新添加的Item中是否有尺寸发生变化的
+     */
+    private boolean fillVisibleItems(RecyclerView.Recycler recycler, int scrollDirection) {
+        computeVisibleWindow();
+        updateTransformCurves();
+
+        //增量布局后已添加的Item不一定连续（插入、移入或内容变化的Item在中间留下空位），逐个记录
+        int windowSize = Math.max(mLastVisibleIndex - mFirstVisibleIndex + 1, 0);
+        if (mAttachedInWindow.length < windowSize) {
+            mAttachedInWindow = new boolean[windowSize];
+        } else {
+            Arrays.fill(mAttachedInWindow, 0, windowSize, false);
+        }
+        CoverFlowTrace.begin(CoverFlowTrace.RECYCLE);
+        for (int i = getChildCount() - 1; i >= 0; i--) {
+            View child = getChildAt(i);
+            LayoutParams lp = (LayoutParams) child.getLayoutParams();
+            int position = lp.virtualPosition;
 
-            if (!Rect.intersects(displayFrame, rect)) {//Item没有在显示区域，就说明需要回收
+            if (position < mFirstVisibleIndex || position > mLastVisibleIndex) {//Item没有在显示区域，就说明需要回收
+                clearMotionLayer(child, lp);
                 removeAndRecycleView(child, recycler); //回收滑出屏幕的View
-                mHasAttachedItems.delete(position);
+                mMetricRecycled++;
+                mDrawOrderDirty = true;
             } else { //Item还在显示区域内，更新滑动后Item的位置
-                layoutItem(child, rect); //更新Item位置
-                mHasAttachedItems.put(position, true);
+                layoutItem(child, getFrame(position, mItemFrame)); //更新Item位置
+                mAttachedInWindow[position - mFirstVisibleIndex] = true;
             }
         }
 
-        if (position == 0) {
-            position = getCenterPosition();
-        }
+        CoverFlowTrace.end();
 
+        //只加载可见范围内还没有添加的Item
+        CoverFlowTrace.begin(CoverFlowTrace.ATTACH);
+        boolean sizeChanged = false;
+        for (int i = mFirstVisibleIndex; i <= mLastVisibleIndex; i++) {
+            if (mAttachedInWindow[i - mFirstVisibleIndex]) {
+                continue;
+            }
+            // 循环滚动时，计算实际的 item 位置
+            int actualPos = i % getItemCount();
+            // 循环滚动时，位置可能是负值，需要将其转换为对应的 item 的值
+            if (actualPos < 0) {
+                actualPos = getItemCount() + actualPos;
+            }
 
-        // 检查前后 20 个 item 是否需要绘制
-        int min = position - 20;
-        int max = position + 20;
+            View scrap = recycler.getViewForPosition(actualPos);
+            LayoutParams lp = (LayoutParams) scrap.getLayoutParams();
+            if (lp.newlyCreated) {
+                lp.newlyCreated = false;
+                mMetricCreated++;
+                mMetricRebound++;
+            } else if (lp.boundPosition != actualPos) {
+                mMetricRebound++;
+            }
+            lp.boundPosition = actualPos;
+            mMetricAttached++;
+            lp.virtualPosition = i;
+            lp.resetTransformState(); //复用的View属性可能已被修改，需要重新写入
+            if (!mTranslationZOrder && scrap.getTranslationZ() != 0f) {
+                //可能来自开启了Z值排序的配置或其他RecyclerView
+                scrap.setTranslationZ(0f);
+            }
+            //来自其他RecyclerView的图层不计入本次滚动，图层类型由灰度重新写入
+            lp.motionLayer = false;
+            if (mInMotion) {
+                addMotionLayer(scrap, lp);
+            }
 
-        if (!mIsLoop) {
-            if (min < 0) {
-                min = 0;
+            measureChildWithMargins(scrap, 0, 0);
+            if (updateItemSize(actualPos, isVertical() ? getDecoratedMeasuredHeight(scrap) : getDecoratedMeasuredWidth(scrap))) {
+                sizeChanged = true;
             }
-            if (max > getItemCount()) {
-                max = getItemCount();
+//                if (scrollDirection == SCROLL_TO_END || mIsFlatFlow) { //item 向右滚动，新增的Item需要添加在最前面
+            if (scrollDirection == SCROLL_TO_END) { //item 向右滚动，新增的Item需要添加在最前面
+                addView(scrap, 0);
+            } else { //item 向左滚动，新增的item要添加在最后面
+                addView(scrap);
             }
+            layoutItem(scrap, getFrame(i, mItemFrame)); //将这个Item布局出来
+            mDrawOrderDirty = true;
         }
+        CoverFlowTrace.end();
+        return sizeChanged;
+    }
 
-        for (int i = min; i < max; i++) {
-            Rect rect = getFrame(i);
-            if (Rect.intersects(displayFrame, rect) &&
-                    !mHasAttachedItems.get(i)) { //重新加载可见范围内的Item
-                // 循环滚动时，计算实际的 item 位置
-                int actualPos = i % getItemCount();
-                // 循环滚动时，位置可能是负值，需要将其转换为对应的 item 的值
-                if (actualPos < 0) {
-                    actualPos = getItemCount() + actualPos;
-                }
+    /**
+     * 更新Item的主轴尺寸，并调整总偏移量，保持当前居中的Item位置不变
+     *
+     * @param position Item在Adapter中的位置
+     * @param size     测量得到的主轴尺寸
+     * @return 尺寸是否发生了变化
+     */
+    private boolean updateItemSize(int position, int size) {
+        if (position >= mOffsetIndex.getCount() || mOffsetIndex.getSize(position) == size) {
+            return false;
+        }
+        int center = getCenterPosition();
+        long centerDelta = mOffsetAll - getCenterOffset(center);
+        mOffsetIndex.setSize(position, size);
+        mOffsetAll = getCenterOffset(center) + centerDelta;
+        return true;
+    }
+
+    /**
+     * 根据总偏移量与偏移量索引算出可见的第一个与最后一个Item位置
+     * <p>Item中心与可见区域中心的距离不会超过 (可见区域大小 + 最大Item尺寸) / 2，
+     * 先以此在索引中查出候选范围，再去掉两端实际不可见的Item
+     */
+    private void computeVisibleWindow() {
+        int space = isVertical() ? getVerticalSpace() : getHorizontalSpace();
+        mFirstVisibleIndex = mGeometry.getFirstVisible(mOffsetAll, space);
+        mLastVisibleIndex = mGeometry.getLastVisible(mOffsetAll, space, mFirstVisibleIndex);
+    }
 
-                View scrap = recycler.getViewForPosition(actualPos);
-                checkTag(scrap.getTag());
-                scrap.setTag(new TAG(i));
+    /**
+     * 虚拟位置对应的Item居中时的总偏移量
+     * <p>Item 0 居中时偏移量为0，相邻两个Item居中时的偏移量相差两者间隔的平均值
+     *
+     * @param index Item位置，循环模式下可能为负值或大于item总数
+     */
+    private long getCenterOffset(int index) {
+        return mGeometry.getCenterOffset(index);
+    }
 
-                measureChildWithMargins(scrap, 0, 0);
-//                if (scrollDirection == SCROLL_TO_END || mIsFlatFlow) { //item 向右滚动，新增的Item需要添加在最前面
-                if (scrollDirection == SCROLL_TO_END) { //item 向右滚动，新增的Item需要添加在最前面
-                    addView(scrap, 0);
-                } else { //item 向左滚动，新增的item要添加在最后面
-                    addView(scrap);
-                }
-                layoutItem(scrap, rect); //将这个Item布局出来
-                mHasAttachedItems.put(i, true);
-            }
-        }
+    /**
+     * 获取间隔区间包含该偏移量的Item虚拟位置，即该偏移量下最靠近中间的Item
+     *
+     * @param offset 总偏移量
+     */
+    private int getVirtualPositionAt(long offset) {
+        return mGeometry.getPositionAt(offset);
     }
 
     /**
@@ -376,129 +1049,283 @@ public class CoverFlowLayoutManger extends RecyclerView.LayoutManager {
      */
     private void layoutItem(View child, Rect frame) {
         if (isVertical()) {
-            //纵向
+            //纵向，横向按Item自身宽度居中
+            int width = getDecoratedMeasuredWidth(child);
+            int left = Math.round((getHorizontalSpace() - width) * 1.0f / 2);
             layoutDecorated(child,
-                    frame.left,
-                    frame.top - mOffsetAll,
-                    frame.right,
-                    frame.bottom - mOffsetAll);
-        } else {
-            //横向
-            layoutDecorated(child,
-                    frame.left - mOffsetAll,
+                    left,
                     frame.top,
-                    frame.right - mOffsetAll,
+                    left + width,
                     frame.bottom);
+        } else {
+            //横向，纵向按Item自身高度居中
+            int height = getDecoratedMeasuredHeight(child);
+            int top = Math.round((getVerticalSpace() - height) * 1.0f / 2);
+            layoutDecorated(child,
+                    frame.left,
+                    top,
+                    frame.right,
+                    top + height);
         }
-        if (!mIsFlatFlow) { //不是平面普通滚动的情况下才进行缩放
-            child.setScaleX(computeScale(frame)); //缩放
-            child.setScaleY(computeScale(frame)); //缩放
+        //Item中点到布局中线的距离，每个Item只计算一次，所有变换器共用
+        float distance = isHorizontal()
+                ? (frame.left + frame.right) / 2f - (mStartX + mDecoratedChildWidth / 2f)
+                : (frame.top + frame.bottom) / 2f - (mStartY + mDecoratedChildHeight / 2f);
+        int interval = getIntervalDistance();
+        float offset = interval > 0 ? distance / interval : 0f;
+        ItemTransform transform = mTransform;
+        transform.reset(mCurves.indexOf(distance));
+        CoverFlowTrace.begin(CoverFlowTrace.TRANSFORM);
+        for (ItemTransformer transformer : mTransformers) {
+            transformer.transformItem(child, offset, orientation, transform);
         }
+        CoverFlowTrace.end();
+        CoverFlowTrace.begin(CoverFlowTrace.APPLY_TRANSFORM);
+        applyTransform(child, (LayoutParams) child.getLayoutParams(), transform);
+        CoverFlowTrace.end();
+    }
 
-        if (mItemGradualAlpha) {
-            child.setAlpha(computeAlpha(frame));
+    /**
+     * 将变换器写入的属性一次性应用到Item，只写入与上次不同的属性
+     * <p>没有变换器设置的属性写入默认值（{@link ItemTransform#reset(int)}），
+     * 从缓存或缓存池中取出的View可能带有旧配置或其他RecyclerView留下的变换，添加时记录已被清除，这里会全部覆盖
+     */
+    private void applyTransform(View child, LayoutParams lp, ItemTransform transform) {
+        if (transform.scaleX != lp.scaleX) {
+            lp.scaleX = transform.scaleX;
+            child.setScaleX(transform.scaleX);
         }
-
-        if (mItemGradualGrey) {
-            greyItem(child, frame);
+        if (transform.scaleY != lp.scaleY) {
+            lp.scaleY = transform.scaleY;
+            child.setScaleY(transform.scaleY);
         }
-
-        if (mItem3D) {
-            item3D(child, frame);
+        if (transform.alpha != lp.alpha) {
+            lp.alpha = transform.alpha;
+            child.setAlpha(transform.alpha);
+        }
+        if (transform.rotationX != lp.rotationX) {
+            lp.rotationX = transform.rotationX;
+            child.setRotationX(transform.rotationX);
+        }
+        if (transform.rotationY != lp.rotationY) {
+            lp.rotationY = transform.rotationY;
+            child.setRotationY(transform.rotationY);
+        }
+        if (transform.translationX != lp.translationX) {
+            lp.translationX = transform.translationX;
+            child.setTranslationX(transform.translationX);
         }
+        if (transform.translationY != lp.translationY) {
+            lp.translationY = transform.translationY;
+            child.setTranslationY(transform.translationY);
+        }
+        greyItem(child, lp, transform.grey);
     }
 
     /**
-     * 动态获取Item的位置信息
+     * 根据偏移量索引直接计算Item在屏幕上的位置信息，不做缓存，也不创建新对象
+     * <p>主轴方向使用该Item自身的尺寸，交叉轴方向使用默认尺寸
+     * <p>滚动坐标使用64位整数，只有减去当前偏移量后的屏幕坐标才转换为int
      *
-     * @param index item位置
-     * @return item的Rect信息
-     */
-    private Rect getFrame(int index) {
-        Rect frame = mAllItemFrames.get(index);
-        if (frame == null) {
-            if (isVertical()) {
-                //纵向
-                frame = new Rect();
-                float offset = mStartY + getIntervalDistance() * index; //原始位置累加（即累计间隔距离）
-                frame.set(mStartX, Math.round(offset), mStartX + mDecoratedChildWidth, Math.round(offset + mDecoratedChildHeight));
-            } else {
-                //横向
-                frame = new Rect();
-                float offset = mStartX + getIntervalDistance() * index; //原始位置累加（即累计间隔距离）
-                frame.set(Math.round(offset), mStartY, Math.round(offset + mDecoratedChildWidth), mStartY + mDecoratedChildHeight);
-            }
+     * @param index    item位置，循环模式下可能为负值或大于item总数
+     * @param outFrame 用于写入结果的Rect，由调用方持有并复用
+     * @return 写入了位置信息的outFrame
+     */
+    private Rect getFrame(int index, Rect outFrame) {
+        int size = mGeometry.getItemSize(index);
+        if (isVertical()) {
+            //纵向
+            int top = mGeometry.getScreenStart(index, mOffsetAll, getVerticalSpace());
+            outFrame.set(mStartX, top, mStartX + mDecoratedChildWidth, top + size);
+        } else {
+            //横向
+            int left = mGeometry.getScreenStart(index, mOffsetAll, getHorizontalSpace());
+            outFrame.set(left, mStartY, left + size, mStartY + mDecoratedChildHeight);
         }
-
-        return frame;
+        return outFrame;
     }
 
     /**
      * 变化Item的灰度值
      *
+     * <p>灰度值被量化为{@link #GREY_LEVEL_COUNT}级，只有量化级变化时才切换图层或更换画笔，
+     * 否则图层内容和画笔都不变，RenderThread不需要重绘图层
+     *
      * @param child 需要设置灰度值的Item
-     * @param frame 位置信息
+     * @param lp    Item的布局参数，记录上一次的量化级
+     * @param value 灰度系数
      */
-    private void greyItem(View child, Rect frame) {
-        float value = 1f;
-        if (isHorizontal()) {
-            value = computeGreyScale(frame.left - mOffsetAll);
+    private void greyItem(View child, LayoutParams lp, float value) {
+        int level = Math.round(value * (GREY_LEVEL_COUNT - 1));
+        if (level == lp.greyLevel) {
+            return;
+        }
+        lp.greyLevel = level;
+        CoverFlowTrace.begin(CoverFlowTrace.GREY_ITEM);
+        if (level >= GREY_LEVEL_COUNT - 1) {
+            // 全彩色的Item（包括居中的Item）不持有灰度图层，滚动中开启的图层保留但不带画笔
+            child.setLayerType(lp.motionLayer ? View.LAYER_TYPE_HARDWARE : View.LAYER_TYPE_NONE, null);
         } else {
-            value = computeGreyScale(frame.top - mOffsetAll);
-        }
-        ColorMatrix cm = new ColorMatrix(new float[]{
-                value, 0, 0, 0, 120 * (1 - value),
-                0, value, 0, 0, 120 * (1 - value),
-                0, 0, value, 0, 120 * (1 - value),
-                0, 0, 0, 1, 250 * (1 - value),
-        });
-//        cm.setSaturation(0.9f);
-
-        // Create a paint object with color matrix
-        Paint greyPaint = new Paint();
-        greyPaint.setColorFilter(new ColorMatrixColorFilter(cm));
-
-        // Create a hardware layer with the grey paint
-        child.setLayerType(View.LAYER_TYPE_HARDWARE, greyPaint);
-        if (value >= 1) {
-            // Remove the hardware layer
-            child.setLayerType(View.LAYER_TYPE_NONE, null);
+            // Create a hardware layer with the grey paint
+            child.setLayerType(View.LAYER_TYPE_HARDWARE, getGreyPaint(level));
         }
+        CoverFlowTrace.end();
+    }
 
+    /**
+     * 获取量化级对应的画笔，每级画笔只在第一次用到时创建，之后不再修改，
+     * 所有LayoutManager共享
+     *
+     * @param level 灰度量化级
+     * @return 对应量化级的灰度画笔
+     */
+    private static Paint getGreyPaint(int level) {
+        Paint greyPaint = sGreyPaints[level];
+        if (greyPaint == null) {
+            float quantized = level * 1f / (GREY_LEVEL_COUNT - 1);
+            ColorMatrix cm = new ColorMatrix(new float[]{
+                    quantized, 0, 0, 0, 120 * (1 - quantized),
+                    0, quantized, 0, 0, 120 * (1 - quantized),
+                    0, 0, quantized, 0, 120 * (1 - quantized),
+                    0, 0, 0, 1, 250 * (1 - quantized),
+            });
+//            cm.setSaturation(0.9f);
+
+            // Create a paint object with color matrix
+            greyPaint = new Paint();
+            greyPaint.setColorFilter(new ColorMatrixColorFilter(cm));
+            sGreyPaints[level] = greyPaint;
+        }
+        return greyPaint;
     }
 
-    private void item3D(View child, Rect frame) {
-        if (isHorizontal()) {
-            float center = (frame.left + frame.right - 2 * mOffsetAll) / 2f;
-            float value = (center - (mStartX + mDecoratedChildWidth / 2f)) * 1f / (getItemCount() * getIntervalDistance());
-            value = (float) Math.sqrt(Math.abs(value));
-            float symbol = center > (mStartX + mDecoratedChildWidth / 2f) ? -1 : 1;
-            child.setRotationY(symbol * 50f * value);
-        } else {
-            float center = (frame.top + frame.bottom - 2 * mOffsetAll) / 2f;
-            float value = (center - (mStartY + mDecoratedChildHeight / 2f)) * 1f / (getItemCount() * getIntervalDistance());
-            value = (float) Math.sqrt(Math.abs(value));
-            float symbol = center > (mStartY + mDecoratedChildHeight / 2f) ? -1 : 1;
-            child.setRotationX(symbol * -50f * value);
+    /**
+     * 配置变化时更新曲线表，配置不变时只做几次比较
+     */
+    private void updateTransformCurves() {
+        int space = isHorizontal() ? getHorizontalSpace() : getVerticalSpace();
+        int itemSize = isHorizontal() ? mDecoratedChildWidth : mDecoratedChildHeight;
+        int start = isHorizontal() ? mStartX : mStartY;
+        if (mCurves == null || !mCurves.matches(space, itemSize, mIntervalRatio, start)) {
+            mCurves = TransformCurves.obtain(space, itemSize, mIntervalRatio, start);
+            mTransform.curves = mCurves;
+        }
+        long total = mOffsetIndex.getTotal();
+        if (mRotationTotal != total) {
+            mRotationTotal = total;
+            mTransform.rotationScale = TransformCurves.getRotationScale(total);
+        }
+    }
+
+    /**
+     * 开始滚动，为已添加的Item开启硬件图层，滚动中只有Item的变换属性变化，不需要重新录制Item内容
+     * <p>图层个数受{@link #MAX_MOTION_LAYERS}和内存预算限制，离中线越近的Item越优先
+     */
+    private void beginMotionLayers() {
+        if (!mMotionLayerEnabled || mInMotion || getChildCount() == 0) {
+            return;
+        }
+        mInMotion = true;
+        mMotionLayerCount = 0;
+        mMaxMotionLayers = computeMaxMotionLayers();
+        //已添加Item的位置互不相同，中线两侧各maxDistance以内的Item不会超过图层个数
+        int center = getCenterPosition();
+        int maxDistance = (mMaxMotionLayers - 1) / 2;
+        for (int i = getChildCount() - 1; i >= 0; i--) {
+            View child = getChildAt(i);
+            LayoutParams lp = (LayoutParams) child.getLayoutParams();
+            if (Math.abs(lp.virtualPosition - center) <= maxDistance) {
+                addMotionLayer(child, lp);
+            }
+        }
+    }
+
+    /**
+     * 滚动停止，关闭滚动中开启的硬件图层
+     */
+    private void endMotionLayers() {
+        if (!mInMotion) {
+            return;
+        }
+        mInMotion = false;
+        for (int i = getChildCount() - 1; i >= 0; i--) {
+            View child = getChildAt(i);
+            clearMotionLayer(child, (LayoutParams) child.getLayoutParams());
+        }
+        mMotionLayerCount = 0;
+    }
+
+    /**
+     * 根据Item尺寸与应用内存上限计算可同时开启的图层个数，低内存设备减半
+     */
+    private int computeMaxMotionLayers() {
+        long layerBytes = 4L * Math.max(mDecoratedChildWidth, 1) * Math.max(mDecoratedChildHeight, 1);
+        ActivityManager am = mRecyclerView == null ? null
+                : (ActivityManager) mRecyclerView.getContext().getSystemService(Context.ACTIVITY_SERVICE);
+        if (am == null) {
+            return MAX_MOTION_LAYERS;
+        }
+        long budget = am.getMemoryClass() * 1024L * 1024L / MOTION_LAYER_MEMORY_DIVISOR;
+        if (am.isLowRamDevice()) {
+            budget /= 2;
+        }
+        return (int) Math.min(MAX_MOTION_LAYERS, budget / layerBytes);
+    }
+
+    private void addMotionLayer(View child, LayoutParams lp) {
+        if (lp.motionLayer || mMotionLayerCount >= mMaxMotionLayers) {
+            return;
+        }
+        lp.motionLayer = true;
+        mMotionLayerCount++;
+        if (child.getLayerType() != View.LAYER_TYPE_HARDWARE) {
+            //灰度Item已经带有硬件图层，直接沿用
+            child.setLayerType(View.LAYER_TYPE_HARDWARE, null);
+        }
+    }
+
+    private void clearMotionLayer(View child, LayoutParams lp) {
+        if (!lp.motionLayer) {
+            return;
+        }
+        lp.motionLayer = false;
+        mMotionLayerCount--;
+        if (lp.greyLevel < 0 || lp.greyLevel >= GREY_LEVEL_COUNT - 1) {
+            //没有灰度图层的Item恢复为无图层
+            child.setLayerType(View.LAYER_TYPE_NONE, null);
         }
     }
 
     @Override
     public void onScrollStateChanged(int state) {
         super.onScrollStateChanged(state);
+        mScrollState = state;
         switch (state) {
             case RecyclerView.SCROLL_STATE_IDLE:
                 //滚动停止时
+                mProgrammaticScroll = false;
+                if (mScrollLocksGesture) {
+                    mScrollLocksGesture = false;
+                    enableGesture = true;
+                }
                 fixOffsetWhenFinishScroll();
+                if (!mProgrammaticScroll) {
+                    //没有发起对齐滚动，滚动真正结束
+                    endMotionLayers();
+                    normalizeLoopOffset();
+                }
                 break;
             case RecyclerView.SCROLL_STATE_DRAGGING:
                 //拖拽滚动时
+                mProgrammaticScroll = false;
+                beginMotionLayers();
                 if (mSelectedListener != null) {
                     mSelectedListener.onItemSelectStart();
                 }
                 break;
             case RecyclerView.SCROLL_STATE_SETTLING:
                 //动画滚动时
+                beginMotionLayers();
                 break;
             default:
                 break;
@@ -514,7 +1341,8 @@ public class CoverFlowLayoutManger extends RecyclerView.LayoutManager {
         if (mRecycle == null || mState == null) {//如果RecyclerView还没初始化完，先记录下要滚动的位置
             mSelectPosition = position;
         } else {
-            layoutItems(mRecycle, mState, position > mSelectPosition ? SCROLL_TO_START : SCROLL_TO_END);
+            //在下一次布局中按新的偏移量摆放Item
+            requestLayout();
             onSelectedCallBack();
             if (mSelectedListener != null) {
                 mSelectedListener.onItemSelectEnd();
@@ -524,12 +1352,86 @@ public class CoverFlowLayoutManger extends RecyclerView.LayoutManager {
 
     @Override
     public void smoothScrollToPosition(RecyclerView recyclerView, RecyclerView.State state, int position) {
-        // TODO 循环模式已支持平滑滚动
-        int finalOffset = calculateOffsetForPosition(position);
-        if (mRecycle == null || mState == null) {//如果RecyclerView还没初始化完，先记录下要滚动的位置
+        if (mRecycle == null || mState == null || mOffsetIndex.getCount() <= 0) {//如果RecyclerView还没初始化完，先记录下要滚动的位置
             mSelectPosition = position;
+            return;
+        }
+        int center = getCenterPosition();
+        //循环模式下取离居中Item最近的等价位置，沿较短的方向绕圈
+        int target = mGeometry.getNearestPosition(center, position);
+        int items = target - center;
+        if (mLongJumpItems > 0 && Math.abs(items) > mLongJumpItems) {
+            //距离过远时逐帧经过的Item都要绑定，先瞬移到目标前几个Item，保持原来的对齐差值，只动画最后几个Item
+            int from = target - Integer.signum(items) * Math.min(LONG_JUMP_ANIMATED_ITEMS, mLongJumpItems);
+            mOffsetAll = getCenterOffset(from) + (mOffsetAll - getCenterOffset(center));
+            mDrawOrderDirty = true;
+            requestLayout();
+        }
+        startScroll(getCenterOffset(target), smoothScrollDuration, DEFAULT_INTERPOLATOR, false, true);
+    }
+
+    @Override
+    public PointF computeScrollVectorForPosition(int targetPosition) {
+        if (getChildCount() == 0 || mOffsetIndex.getCount() == 0) {
+            return null;
+        }
+        //循环模式下取当前圈中的目标位置
+        int index = mGeometry.getLap(getCenterPosition()) * mOffsetIndex.getCount() + targetPosition;
+        int direction = Long.signum(getCenterOffset(index) - mOffsetAll);
+        return isHorizontal() ? new PointF(direction, 0) : new PointF(0, direction);
+    }
+
+    @Override
+    public void collectAdjacentPrefetchPositions(int dx, int dy, RecyclerView.State state,
+                                                 LayoutPrefetchRegistry layoutPrefetchRegistry) {
+        int delta = isHorizontal() ? dx : dy;
+        int count = mOffsetIndex.getCount();
+        if (delta == 0 || getChildCount() == 0 || count == 0 || mPrefetchItemCount <= 0) {
+            return;
+        }
+        //循环模式下Item较少时，可见范围外的Item不足N个，避免重复预取同一个Item
+        int visibleCount = mLastVisibleIndex - mFirstVisibleIndex + 1;
+        int prefetchCount = mIsLoop ? Math.min(mPrefetchItemCount, count - visibleCount) : mPrefetchItemCount;
+        int space = isHorizontal() ? getHorizontalSpace() : getVerticalSpace();
+        for (int i = 1; i <= prefetchCount; i++) {
+            int index = delta > 0 ? mLastVisibleIndex + i : mFirstVisibleIndex - i;
+            if (!mIsLoop && (index < 0 || index >= count)) {
+                break;
+            }
+            //Item进入可见区域前还需滚动的距离，距离越近越先预取
+            Rect frame = getFrame(index, mItemFrame);
+            int start = isHorizontal() ? frame.left : frame.top;
+            int end = isHorizontal() ? frame.right : frame.bottom;
+            int distance = delta > 0 ? start - space : -end;
+            layoutPrefetchRegistry.addPosition(toAdapterPosition(index), Math.max(distance, 0));
+        }
+    }
+
+    @Override
+    public void collectInitialPrefetchPositions(int adapterItemCount, LayoutPrefetchRegistry layoutPrefetchRegistry) {
+        if (adapterItemCount <= 0 || mPrefetchItemCount <= 0) {
+            return;
+        }
+        //还未布局时可见范围未知，预取居中Item及其两侧的Item，使嵌套在列表中时进入屏幕前就已绑定
+        int first;
+        int last;
+        if (mRecycle != null && mLastVisibleIndex >= mFirstVisibleIndex) {
+            first = mFirstVisibleIndex;
+            last = mLastVisibleIndex;
         } else {
-            startScroll(mOffsetAll, finalOffset, smoothScrollDuration);
+            //未初始化时mSelectPosition记录了待滚动到的位置
+            int center = mRecycle == null ? mSelectPosition : mSelectPositionNature;
+            first = center - mPrefetchItemCount;
+            last = center + mPrefetchItemCount;
+        }
+        if (last - first + 1 > adapterItemCount) {
+            last = first + adapterItemCount - 1;
+        }
+        for (int i = first; i <= last; i++) {
+            if (!mIsLoop && (i < 0 || i >= adapterItemCount)) {
+                continue;
+            }
+            layoutPrefetchRegistry.addPosition(CoverFlowGeometry.toAdapterPosition(i, adapterItemCount), 0);
         }
     }
 
@@ -546,19 +1448,83 @@ public class CoverFlowLayoutManger extends RecyclerView.LayoutManager {
         if (isVertical()) {
             return enableGesture;
         }
-        return false;
+        return false;
+    }
+
+    @Override
+    public void onAttachedToWindow(RecyclerView view) {
+        super.onAttachedToWindow(view);
+        mRecyclerView = view;
+        mFlingPredictor = new Scroller(view.getContext(), DEFAULT_INTERPOLATOR);
+        if (view.getOnFlingListener() == null) {
+            view.setOnFlingListener(mFlingListener);
+        }
+    }
+
+    @Override
+    public void onDetachedFromWindow(RecyclerView view, RecyclerView.Recycler recycler) {
+        super.onDetachedFromWindow(view, recycler);
+        if (view.getOnFlingListener() == mFlingListener) {
+            view.setOnFlingListener(null);
+        }
+        endMotionLayers();
+        if (mRecycleChildrenOnDetach) {
+            //使用共享缓存池时，把Item还给缓存池供其他RecyclerView复用，重新添加到窗口时再布局
+            removeAndRecycleAllViews(recycler);
+            recycler.clear();
+            mDrawOrderDirty = true;
+        }
+        mRecyclerView = null;
+    }
+
+    /**
+     * 设置从窗口移除时是否回收所有Item，多个RecyclerView共享缓存池时开启
+     */
+    public void setRecycleChildrenOnDetach(boolean recycleChildrenOnDetach) {
+        mRecycleChildrenOnDetach = recycleChildrenOnDetach;
+    }
+
+    /**
+     * 惯性滑动：根据速度预测停止位置，对齐到最近的Item后，用一段减速滚动直接到达，
+     * 不再先自由滑动、停止后再启动对齐动画
+     *
+     * @param velocity 主轴方向的速度，正值表示偏移量增加的方向
+     * @return 是否处理了惯性滑动，未处理时由RecyclerView按默认方式滑动
+     */
+    private boolean flingToSnap(int velocity) {
+        if (mRecyclerView == null || mRecycle == null || mState == null
+                || mOffsetIndex.getTotal() <= 0 || velocity == 0 || !enableGesture) {
+            return false;
+        }
+        mFlingPredictor.fling(0, 0, velocity, 0, Integer.MIN_VALUE, Integer.MAX_VALUE, 0, 0);
+        int target = mGeometry.getFlingTarget(mOffsetAll, mFlingPredictor.getFinalX(),
+                Integer.signum(velocity), mMaxFlingItems);
+        long distance = getCenterOffset(target) - mOffsetAll;
+        if (distance == 0) {
+            //已经对齐，同样消费掉惯性滑动，直接结束拖拽，不再由RecyclerView先自由滑动再对齐
+            mRecyclerView.stopScroll();
+            return true;
+        }
+        //减速曲线的初速度为 2 x 距离 / 时长，由此反推时长，使滚动的起始速度与手指离开时一致
+        long duration = Math.max(MIN_FLING_DURATION,
+                Math.min(2000L * Math.abs(distance) / Math.abs(velocity), MAX_FLING_DURATION));
+        startScroll(getCenterOffset(target), duration, DEFAULT_INTERPOLATOR, false, false);
+        mScrollFromFling = true;
+        return true;
     }
 
     @Override
     public void onAdapterChanged(RecyclerView.Adapter oldAdapter, RecyclerView.Adapter newAdapter) {
+        endMotionLayers();
         removeAllViews();
+        mFullLayoutRequired = true;
+        mDrawOrderDirty = true;
         mRecycle = null;
         mState = null;
         mOffsetAll = 0;
         mSelectPosition = 0;
         mLastSelectPosition = 0;
-        mHasAttachedItems.clear();
-        mAllItemFrames.clear();
+        mOffsetIndex.reset(0, 0, mIntervalRatio);
     }
 
     /**
@@ -578,92 +1544,8 @@ public class CoverFlowLayoutManger extends RecyclerView.LayoutManager {
     /**
      * 获取最大偏移量
      */
-    private float getMaxOffset() {
-        return (getItemCount() - 1) * getIntervalDistance();
-    }
-
-    /**
-     * 计算Item缩放系数
-     *
-     * @param r Item的偏移量
-     * @return 缩放系数
-     */
-    private float computeScale(Rect r) {
-        if (r == null) {
-            return 1f;
-        }
-        float scale = 0;
-        if (isHorizontal()) {
-            scale = 1 - Math.abs(r.left - mOffsetAll - mStartX) * 1.0f / Math.abs(mStartX + mDecoratedChildWidth / mIntervalRatio);
-        } else {
-            scale = 1 - Math.abs(r.top - mOffsetAll - mStartY) * 1.0f / Math.abs(mStartY + mDecoratedChildHeight / mIntervalRatio);
-        }
-        if (scale < 0) {
-            scale = 0;
-        }
-        if (scale > 1) {
-            scale = 1;
-        }
-        return scale;
-    }
-
-    /**
-     * 计算Item的灰度值
-     *
-     * @param x Item的偏移量
-     * @return 灰度系数
-     */
-    private float computeGreyScale(int x) {
-        if (isHorizontal()) {
-            float itemMidPos = x + mDecoratedChildWidth / 2f; //item中点x坐标
-            float itemDx2Mid = Math.abs(itemMidPos - getHorizontalSpace() / 2f); //item中点距离控件中点距离
-            float value = 1 - itemDx2Mid * 1.0f / (getHorizontalSpace() / 2f);
-            if (value < 0.1) {
-                value = 0.1f;
-            }
-            if (value > 1) {
-                value = 1;
-            }
-            value = (float) Math.pow(value, .8);
-            return value;
-        } else {
-            float itemMidPos = x + mDecoratedChildHeight / 2f; //item中点x坐标
-            float itemDx2Mid = Math.abs(itemMidPos - getVerticalSpace() / 2f); //item中点距离控件中点距离
-            float value = 1 - itemDx2Mid * 1.0f / (getVerticalSpace() / 2f);
-            if (value < 0.1) {
-                value = 0.1f;
-            }
-            if (value > 1) {
-                value = 1;
-            }
-            value = (float) Math.pow(value, .8);
-            return value;
-        }
-    }
-
-    /**
-     * 计算Item半透值
-     *
-     * @param r Item的偏移量
-     * @return 缩放系数
-     */
-    private float computeAlpha(Rect r) {
-        if (r == null) {
-            return 1f;
-        }
-        float alpha = 1f;
-        if (isHorizontal()) {
-            alpha = 1 - Math.abs(r.left - mOffsetAll - mStartX) * 1.0f / Math.abs(mStartX + mDecoratedChildWidth / mIntervalRatio);
-        } else {
-            alpha = 1 - Math.abs(r.top - mOffsetAll - mStartY) * 1.0f / Math.abs(mStartY + mDecoratedChildHeight / mIntervalRatio);
-        }
-        if (alpha < 0.3f) {
-            alpha = 0.3f;
-        }
-        if (alpha > 1) {
-            alpha = 1.0f;
-        }
-        return alpha;
+    private long getMaxOffset() {
+        return mGeometry.getMaxOffset();
     }
 
     /**
@@ -671,27 +1553,32 @@ public class CoverFlowLayoutManger extends RecyclerView.LayoutManager {
      *
      * @param position 要计算Item位置
      */
-    private int calculateOffsetForPosition(int position) {
-        return Math.round(getIntervalDistance() * position);
+    private long calculateOffsetForPosition(int position) {
+        return getCenterOffset(position);
     }
 
     /**
      * 修正停止滚动后，Item滚动到中间位置
      */
     private void fixOffsetWhenFinishScroll() {
-        if (getIntervalDistance() != 0) { // 判断非 0 ，否则除 0 会导致异常
-            int scrollN = (int) (mOffsetAll * 1.0f / getIntervalDistance());
-            float moreDx = (mOffsetAll % getIntervalDistance());
-            if (Math.abs(moreDx) > (getIntervalDistance() * 0.5)) {
-                if (moreDx > 0) {
-                    scrollN++;
-                } else {
-                    scrollN--;
+        CoverFlowTrace.begin(CoverFlowTrace.SNAP);
+        fixOffset();
+        CoverFlowTrace.end();
+    }
+
+    private void fixOffset() {
+        if (mOffsetIndex.getTotal() > 0) { // 判断非 0 ，否则除 0 会导致异常
+            long finalOffset = mGeometry.getSnapOffset(mOffsetAll);
+            mSelectPosition = toAdapterPosition(getCenterPosition());
+            if (finalOffset == mOffsetAll) {
+                //已经对齐（如惯性滑动直接停在了Item上），不需要再启动对齐动画
+                onSelectedCallBack();
+                if (mSelectedListener != null) {
+                    mSelectedListener.onItemSelectEnd();
                 }
+                return;
             }
-            int finalOffset = scrollN * getIntervalDistance();
-            startScroll(mOffsetAll, finalOffset, smoothScrollDuration);
-            mSelectPosition = Math.abs(Math.round(finalOffset * 1.0f / getIntervalDistance())) % getItemCount();
+            startScroll(finalOffset, smoothScrollDuration, DEFAULT_INTERPOLATOR, false, false);
         } else {
             if (mSelectedListener != null) {
                 mSelectedListener.onItemSelectEnd();
@@ -729,71 +1616,89 @@ public class CoverFlowLayoutManger extends RecyclerView.LayoutManager {
     public boolean randomSmoothScrollToPosition(long duration, int pos) {
         //在所有项目中随机一个
         if (enableGesture) {
-            int offset = calculateOffsetForPosition(pos);
-            startScroll(mOffsetAll, offset, duration, new AccelerateDecelerateInterpolator(), true);
+            long offset = calculateOffsetForPosition(pos);
+            startScroll(offset, duration, RANDOM_INTERPOLATOR, true, true);
             return true;
         }
         return false;
     }
 
     /**
-     * 滚动到指定X轴位置
+     * 通过{@link CoverFlowScroller}滚动到指定偏移量，由RecyclerView逐帧驱动，
+     * 滚动状态、嵌套滚动与预取都与手势滚动一致
      *
-     * @param from X轴方向起始点的偏移量
-     * @param to   X轴方向终点的偏移量
-     */
-    private void startScroll(int from, int to, long duration) {
-        startScroll(from, to, duration, null, false);
-    }
-
-    private void startScroll(int from, int to, long duration, Interpolator interpolator, final boolean lockGesture) {
-        if (mAnimation != null && mAnimation.isRunning()) {
-            mAnimation.cancel();
-        }
-        final int direction = from < to ? SCROLL_TO_START : SCROLL_TO_END;
-        mAnimation = ValueAnimator.ofFloat(from, to);
-        mAnimation.setDuration(duration <= 0 ? 500 : duration);
-        mAnimation.setInterpolator(interpolator != null ? interpolator : new DecelerateInterpolator());
-        mAnimation.addUpdateListener(animation -> {
-            Log.e("savion","coverFlowLayout render:"+destoryed);
-            if (!destoryed) {
-                mOffsetAll = Math.round((float) animation.getAnimatedValue());
-                layoutItems(mRecycle, mState, direction);
-            }
-        });
-        mAnimation.addListener(new Animator.AnimatorListener() {
-            @Override
-            public void onAnimationStart(Animator animation) {
-                if (lockGesture) {
-                    enableGesture = false;
-                }
-                if (mSelectedListener != null) {
-                    mSelectedListener.onItemSelectStart();
-                }
-            }
-
-            @Override
-            public void onAnimationEnd(Animator animation) {
-                onSelectedCallBack();
-                if (mSelectedListener != null) {
-                    mSelectedListener.onItemSelectEnd();
-                }
-                if (lockGesture) {
-                    enableGesture = true;
-                }
-            }
-
-            @Override
-            public void onAnimationCancel(Animator animation) {
-
+     * @param to           终点偏移量
+     * @param duration     滚动时长
+     * @param interpolator 插值器
+     * @param lockGesture  滚动过程中是否禁止手势
+     * @param notifyStart  是否回调{@link OnSelected#onItemSelectStart()}，拖拽或惯性之后的对齐滚动已经回调过
+     */
+    private void startScroll(long to, long duration, Interpolator interpolator, boolean lockGesture, boolean notifyStart) {
+        to = mGeometry.clampOffset(to);
+        long distance = to - mOffsetAll;
+        if (mRecyclerView == null || distance == 0) {
+            //未添加到窗口时无法由RecyclerView驱动，直接定位
+            mOffsetAll = to;
+            requestLayout();
+            onSelectedCallBack();
+            if (mSelectedListener != null) {
+                mSelectedListener.onItemSelectEnd();
             }
+            return;
+        }
+        mProgrammaticScroll = true;
+        mScrollFromFling = false;
+        if (Math.abs(distance) > Integer.MAX_VALUE) {
+            //滚动器只能处理int距离，超出时先直接跳到距终点int范围内的位置
+            distance = distance > 0 ? Integer.MAX_VALUE : -Integer.MAX_VALUE;
+            mOffsetAll = to - distance;
+            requestLayout();
+        }
+        mScrollTo = to;
+        mScrollDistance = (int) distance;
+        mScrollDuration = (int) (duration <= 0 ? smoothScrollDuration : duration);
+        mScrollInterpolator = interpolator;
+        if (lockGesture) {
+            mScrollLocksGesture = true;
+            enableGesture = false;
+        }
+        if (notifyStart && mSelectedListener != null) {
+            mSelectedListener.onItemSelectStart();
+        }
+        startSmoothScroll(new CoverFlowScroller(toAdapterPosition(getVirtualPositionAt(to)),
+                mScrollDistance, mScrollDuration, interpolator));
+    }
 
-            @Override
-            public void onAnimationRepeat(Animator animation) {
+    /**
+     * 循环模式下滚动停止后，将总偏移量归一到居中Item位于第0圈，避免长时间滚动后偏移量溢出
+     * <p>偏移量与已添加Item的虚拟位置同时平移整圈，Item在屏幕上的位置不变，不需要重新布局
+     */
+    private void normalizeLoopOffset() {
+        int count = mOffsetIndex.getCount();
+        if (!mIsLoop || count <= 0 || mOffsetIndex.getTotal() <= 0) {
+            return;
+        }
+        int lap = mGeometry.getLap(getCenterPosition());
+        if (lap == 0) {
+            return;
+        }
+        int shift = lap * count;
+        mOffsetAll -= mGeometry.getLapOffset(lap);
+        mMetricLastOffset -= mGeometry.getLapOffset(lap);
+        mSelectPositionNature -= shift;
+        mFirstVisibleIndex -= shift;
+        mLastVisibleIndex -= shift;
+        for (int i = getChildCount() - 1; i >= 0; i--) {
+            ((LayoutParams) getChildAt(i).getLayoutParams()).virtualPosition -= shift;
+        }
+        mDrawOrderDirty = true;
+    }
 
-            }
-        });
-        mAnimation.start();
+    /**
+     * 手势是否可用，锁定手势的滚动过程中为false
+     */
+    boolean isGestureEnabled() {
+        return enableGesture;
     }
 
     /**
@@ -811,97 +1716,90 @@ public class CoverFlowLayoutManger extends RecyclerView.LayoutManager {
      * 计算当前选中位置，并回调
      */
     private void onSelectedCallBack() {
-        mSelectPositionNature = Math.round(mOffsetAll / getIntervalDistance());
-        mSelectPosition = mSelectPositionNature;
-        mSelectPosition = mSelectPosition < 0 ? (getItemCount() + (mSelectPosition % getItemCount())) : Math.abs(mSelectPosition % getItemCount());
+        mSelectPositionNature = getCenterPosition();
+        mSelectPosition = toAdapterPosition(mSelectPositionNature);
         if (mSelectedListener != null && mSelectPosition != mLastSelectPosition) {
             mSelectedListener.onItemSelected(mSelectPosition);
         }
         mLastSelectPosition = mSelectPosition;
     }
 
-    private TAG checkTag(Object tag) {
-        if (tag != null) {
-            if (tag instanceof TAG) {
-                return ((TAG) tag);
-            } else {
-                throw new IllegalArgumentException("You should not use View#setTag(Object tag), use View#setTag(int key, Object tag) instead!");
-            }
-        } else {
-            return null;
-        }
-    }
-
     /**
      * 获取第一个可见的Item位置
      * <p>Note:该Item为绘制在可见区域的第一个Item，有可能被第二个Item遮挡
+     *
+     * @return Item在Adapter中的位置，没有可见Item时返回{@link RecyclerView#NO_POSITION}
      */
     public int getFirstVisiblePosition() {
-        Rect displayFrame = new Rect(mOffsetAll, 0, mOffsetAll + getHorizontalSpace(), getVerticalSpace());
-        int cur = getCenterPosition();
-        for (int i = cur - 1; ; i--) {
-            Rect rect = getFrame(i);
-            if (rect.left <= displayFrame.left) {
-                return Math.abs(i) % getItemCount();
-            }
+        if (getItemCount() <= 0 || mLastVisibleIndex < mFirstVisibleIndex) {
+            return RecyclerView.NO_POSITION;
         }
+        return toAdapterPosition(mFirstVisibleIndex);
     }
 
     /**
      * 获取最后一个可见的Item位置
      * <p>Note:该Item为绘制在可见区域的最后一个Item，有可能被倒数第二个Item遮挡
+     *
+     * @return Item在Adapter中的位置，没有可见Item时返回{@link RecyclerView#NO_POSITION}
      */
     public int getLastVisiblePosition() {
-        Rect displayFrame = new Rect(mOffsetAll, 0, mOffsetAll + getHorizontalSpace(), getVerticalSpace());
-        int cur = getCenterPosition();
-        for (int i = cur + 1; ; i++) {
-            Rect rect = getFrame(i);
-            if (rect.right >= displayFrame.right) {
-                return Math.abs(i) % getItemCount();
-            }
+        if (getItemCount() <= 0 || mLastVisibleIndex < mFirstVisibleIndex) {
+            return RecyclerView.NO_POSITION;
         }
+        return toAdapterPosition(mLastVisibleIndex);
     }
 
     /**
-     * 该方法主要用于{@link RecyclerCoverFlow#getChildDrawingOrder(int, int)}判断中间位置
+     * 获取child的虚拟位置
      *
      * @param index child 在 RecyclerCoverFlow 中的位置
      * @return child 的实际位置，如果 {@link #mIsLoop} 为 true ，返回结果可能为负值
      */
     int getChildActualPos(int index) {
-        View child = getChildAt(index);
-        if (child.getTag() != null) {
-            TAG tag = checkTag(child.getTag());
-            return tag.pos;
-        } else {
-            return getPosition(child);
-        }
+        return ((LayoutParams) getChildAt(index).getLayoutParams()).virtualPosition;
     }
 
     /**
      * 获取可见范围内最大的显示Item个数
      */
     public int getMaxVisibleCount() {
-        int oneSide = (getHorizontalSpace() - mStartX) / (getIntervalDistance());
+        int interval = getIntervalDistance();
+        if (interval <= 0) {
+            //还未布局
+            return 1;
+        }
+        int oneSide = isHorizontal()
+                ? (getHorizontalSpace() - mStartX) / interval
+                : (getVerticalSpace() - mStartY) / interval;
         return oneSide * 2 + 1;
     }
 
     /**
      * 获取中间位置
-     * <p>Note:该方法主要用于{@link RecyclerCoverFlow#getChildDrawingOrder(int, int)}判断中间位置
+     * <p>Note:该方法主要用于{@link RecyclerCoverFlow}判断中间位置
      * <p>如果需要获取被选中的Item位置，调用{@link #getSelectedPos()}
      */
     int getCenterPosition() {
-        int pos = mOffsetAll / getIntervalDistance();
-        int more = mOffsetAll % getIntervalDistance();
-        if (Math.abs(more) >= getIntervalDistance() * 0.5f) {
-            if (more >= 0) {
-                pos++;
-            } else {
-                pos--;
-            }
-        }
-        return pos;
+        return getVirtualPositionAt(mOffsetAll);
+    }
+
+    /**
+     * 居中Item在Adapter中的位置，滚动过程中实时变化
+     */
+    int getCenterAdapterPosition() {
+        return toAdapterPosition(getCenterPosition());
+    }
+
+    boolean isLoop() {
+        return mIsLoop;
+    }
+
+    /**
+     * 将循环模式下的虚拟位置转换为Adapter中的位置
+     */
+    private int toAdapterPosition(int index) {
+        return CoverFlowGeometry.toAdapterPosition(index, getItemCount());
     }
 
     /**
@@ -913,6 +1811,16 @@ public class CoverFlowLayoutManger extends RecyclerView.LayoutManager {
         mSelectedListener = l;
     }
 
+    /**
+     * 设置布局性能指标监听
+     *
+     * @param l 监听接口，为null时不计时也不回调
+     */
+    public void setMetricsListener(CoverFlowMetricsListener l) {
+        mMetricsListener = l;
+        mMetricLastNanos = 0L;
+    }
+
     /**
      * 获取被选中Item位置
      */
@@ -929,13 +1837,12 @@ public class CoverFlowLayoutManger extends RecyclerView.LayoutManager {
         return mSelectPositionNature;
     }
 
-    private boolean destoryed = false;
-
+    /**
+     * 停止正在进行的滚动
+     */
     public void onDestory() {
-        Log.e("savion","coverFlowLayout render destory:"+destoryed);
-        destoryed = true;
-        if (mAnimation != null) {
-            mAnimation.cancel();
+        if (mRecyclerView != null) {
+            mRecyclerView.stopScroll();
         }
     }
 
@@ -967,15 +1874,248 @@ public class CoverFlowLayoutManger extends RecyclerView.LayoutManager {
         }
     }
 
-    private class TAG {
-        int pos;
+    /**
+     * CoverFlow的Item布局参数
+     * <p>记录Item在循环滚动下的虚拟位置，以及上一次写入View的变换属性，
+     * 避免占用{@link View#setTag(Object)}，也避免每帧重复写入相同的属性
+     */
+    public static class LayoutParams extends RecyclerView.LayoutParams {
+
+        /**
+         * Item的虚拟位置，循环模式下可能为负值或大于item总数
+         */
+        int virtualPosition;
+
+        /**
+         * 是否为新创建的Item，RecyclerView为新创建的View生成本布局参数，第一次添加时统计为创建
+         */
+        boolean newlyCreated = true;
+
+        /**
+         * Item上一次添加时的Adapter位置，位置不同说明换到了新位置
+         */
+        int boundPosition = RecyclerView.NO_POSITION;
+
+        /**
+         * 上一次写入View的变换属性
+         */
+        float scaleX;
+        float scaleY;
+        float alpha;
+        float rotationX;
+        float rotationY;
+        float translationX;
+        float translationY;
+
+        /**
+         * 上一次设置的灰度量化级，-1表示未设置，此时View可能带有之前的图层
+         */
+        int greyLevel;
+
+        /**
+         * 是否持有滚动过程中开启的硬件图层
+         */
+        boolean motionLayer;
+
+        public LayoutParams(Context c, AttributeSet attrs) {
+            super(c, attrs);
+            resetTransformState();
+        }
+
+        public LayoutParams(int width, int height) {
+            super(width, height);
+            resetTransformState();
+        }
+
+        public LayoutParams(ViewGroup.MarginLayoutParams source) {
+            super(source);
+            resetTransformState();
+        }
+
+        public LayoutParams(ViewGroup.LayoutParams source) {
+            super(source);
+            resetTransformState();
+        }
+
+        public LayoutParams(RecyclerView.LayoutParams source) {
+            super(source);
+            resetTransformState();
+        }
+
+        /**
+         * 清除记录的变换属性，下一次布局时会重新写入View
+         */
+        void resetTransformState() {
+            scaleX = Float.NaN;
+            scaleY = Float.NaN;
+            alpha = Float.NaN;
+            rotationX = Float.NaN;
+            rotationY = Float.NaN;
+            translationX = Float.NaN;
+            translationY = Float.NaN;
+            greyLevel = -1;
+        }
+    }
+
+    /**
+     * 一次性确定滚动距离的SmoothScroller，由RecyclerView的ViewFlinger逐帧驱动，滚动状态为SETTLING，结束后回到IDLE
+     */
+    private class CoverFlowScroller extends RecyclerView.SmoothScroller {
+
+        private final int mDistance;
+        private final int mDuration;
+        private final Interpolator mInterpolator;
+        private boolean mStarted = false;
+
+        CoverFlowScroller(int targetPosition, int distance, int duration, Interpolator interpolator) {
+            setTargetPosition(targetPosition);
+            mDistance = distance;
+            mDuration = duration;
+            mInterpolator = interpolator;
+        }
+
+        @Override
+        public PointF computeScrollVectorForPosition(int targetPosition) {
+            //滚动距离已经确定，不需要RecyclerView先按方向试探滚动1像素
+            return null;
+        }
+
+        @Override
+        protected void onStart() {
+        }
+
+        @Override
+        protected void onStop() {
+        }
+
+        @Override
+        protected void onSeekTargetStep(int dx, int dy, RecyclerView.State state, Action action) {
+            update(action);
+        }
+
+        @Override
+        protected void onTargetFound(View targetView, RecyclerView.State state, Action action) {
+            //目标Item已添加时，继续按开始时确定的距离滚动
+            update(action);
+        }
+
+        private void update(Action action) {
+            if (mStarted) {
+                return;
+            }
+            mStarted = true;
+            action.update(isHorizontal() ? mDistance : 0, isVertical() ? mDistance : 0,
+                    mDuration, mInterpolator);
+        }
+    }
+
+    /**
+     * 配置修改事务，由{@link #edit()}创建
+     * <p>各项修改只记录在事务中，{@link #commit()}时一次性生效，最多触发一次重新布局
+     */
+    public final class Editor {
+
+        private final Builder mPending;
+
+        private Editor(Builder pending) {
+            mPending = pending;
+        }
+
+        /**
+         * @param isFlat true:平面滚动；false:叠加缩放滚动
+         */
+        public Editor setFlatFlow(boolean isFlat) {
+            mPending.setFlat(isFlat);
+            return this;
+        }
+
+        public Editor setGreyItem(boolean greyItem) {
+            mPending.setGreyItem(greyItem);
+            return this;
+        }
+
+        public Editor setAlphaItem(boolean alphaItem) {
+            mPending.setAlphaItem(alphaItem);
+            return this;
+        }
+
+        public Editor setLoop(boolean loop) {
+            mPending.setLoop(loop);
+            return this;
+        }
+
+        public Editor set3DItem(boolean d3) {
+            mPending.set3DItem(d3);
+            return this;
+        }
+
+        /**
+         * @param intervalRatio Item间隔比例，小于0时使用默认比例
+         */
+        public Editor setIntervalRatio(float intervalRatio) {
+            mPending.setIntervalRatio(intervalRatio);
+            return this;
+        }
+
+        /**
+         * {@link OrientationHelper#HORIZONTAL}
+         * {@link OrientationHelper#VERTICAL}
+         */
+        public Editor setOrientation(int orientation) {
+            mPending.setOrientation(orientation);
+            return this;
+        }
+
+        public Editor setMotionLayerEnabled(boolean enabled) {
+            mPending.setMotionLayer(enabled);
+            return this;
+        }
+
+        public Editor setTranslationZOrderEnabled(boolean enabled) {
+            mPending.setTranslationZOrder(enabled);
+            return this;
+        }
+
+        public Editor setMaxFlingItems(int max) {
+            mPending.setMaxFlingItems(max);
+            return this;
+        }
+
+        /**
+         * @param items 平滑滚动超过该Item个数时先瞬移到目标附近，小于等于0时不瞬移
+         */
+        public Editor setLongJumpItems(int items) {
+            mPending.setLongJumpItems(items);
+            return this;
+        }
+
+        public Editor setPrefetchItemCount(int count) {
+            mPending.setPrefetchItemCount(count);
+            return this;
+        }
+
+        public Editor addItemTransformer(ItemTransformer transformer) {
+            mPending.addItemTransformer(transformer);
+            return this;
+        }
+
+        public Editor removeItemTransformer(ItemTransformer transformer) {
+            mPending.removeItemTransformer(transformer);
+            return this;
+        }
 
-        TAG(int pos) {
-            this.pos = pos;
+        /**
+         * 使修改生效
+         */
+        public void commit() {
+            commitConfig(new Builder(mPending));
         }
     }
 
-    static class Builder {
+    /**
+     * 布局器的初始配置，创建后通过{@link #edit()}修改
+     */
+    public static class Builder {
         boolean isFlat = false;
         boolean isGreyItem = false;
         boolean isAlphaItem = false;
@@ -983,45 +2123,109 @@ public class CoverFlowLayoutManger extends RecyclerView.LayoutManager {
         boolean isLoop = false;
         int orientation = OrientationHelper.VERTICAL;
         boolean is3DItem = false;
+        boolean motionLayer = false;
+        boolean translationZOrder = false;
+        int maxFlingItems = 0;
+        int prefetchItemCount = DEFAULT_PREFETCH_ITEM_COUNT;
+        int longJumpItems = DEFAULT_LONG_JUMP_ITEMS;
+        final ArrayList<ItemTransformer> transformers = new ArrayList<>();
+
+        public Builder() {
+        }
+
+        Builder(Builder other) {
+            isFlat = other.isFlat;
+            isGreyItem = other.isGreyItem;
+            isAlphaItem = other.isAlphaItem;
+            cstIntervalRatio = other.cstIntervalRatio;
+            isLoop = other.isLoop;
+            orientation = other.orientation;
+            is3DItem = other.is3DItem;
+            motionLayer = other.motionLayer;
+            translationZOrder = other.translationZOrder;
+            maxFlingItems = other.maxFlingItems;
+            prefetchItemCount = other.prefetchItemCount;
+            longJumpItems = other.longJumpItems;
+            transformers.addAll(other.transformers);
+        }
 
-        Builder setFlat(boolean flat) {
+        public Builder setFlat(boolean flat) {
             isFlat = flat;
             return this;
         }
 
-        Builder setOrientation(int orientation) {
+        public Builder setOrientation(int orientation) {
             this.orientation = orientation;
             return this;
         }
 
-        Builder setGreyItem(boolean greyItem) {
+        public Builder setGreyItem(boolean greyItem) {
             isGreyItem = greyItem;
             return this;
         }
 
-        Builder setAlphaItem(boolean alphaItem) {
+        public Builder setAlphaItem(boolean alphaItem) {
             isAlphaItem = alphaItem;
             return this;
         }
 
-        Builder setIntervalRatio(float ratio) {
+        public Builder setIntervalRatio(float ratio) {
             cstIntervalRatio = ratio;
             return this;
         }
 
-        Builder loop() {
+        public Builder loop() {
             isLoop = true;
             return this;
         }
 
-        Builder set3DItem(boolean d3) {
+        public Builder setLoop(boolean loop) {
+            isLoop = loop;
+            return this;
+        }
+
+        public Builder set3DItem(boolean d3) {
             is3DItem = d3;
             return this;
         }
 
+        public Builder setMotionLayer(boolean enabled) {
+            motionLayer = enabled;
+            return this;
+        }
+
+        public Builder setPrefetchItemCount(int count) {
+            prefetchItemCount = count;
+            return this;
+        }
+
+        public Builder setLongJumpItems(int items) {
+            longJumpItems = items;
+            return this;
+        }
+
+        public Builder setMaxFlingItems(int max) {
+            maxFlingItems = max;
+            return this;
+        }
+
+        public Builder setTranslationZOrder(boolean enabled) {
+            translationZOrder = enabled;
+            return this;
+        }
+
+        public Builder addItemTransformer(ItemTransformer transformer) {
+            transformers.add(transformer);
+            return this;
+        }
+
+        public Builder removeItemTransformer(ItemTransformer transformer) {
+            transformers.remove(transformer);
+            return this;
+        }
+
         public CoverFlowLayoutManger build() {
-            return new CoverFlowLayoutManger(isFlat, isGreyItem,
-                    isAlphaItem, cstIntervalRatio, isLoop, is3DItem, orientation);
+            return new CoverFlowLayoutManger(this);
         }
     }
 }
\ No newline at end of file
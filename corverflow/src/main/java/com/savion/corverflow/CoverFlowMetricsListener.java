@@ -0,0 +1,50 @@
+package com.savion.corverflow;
+
+/**
+ * 布局性能指标监听
+ * <p>{@link CoverFlowLayoutManger}每次布局或滚动后回调一次，用于区分卡顿来自Adapter还是布局器，
+ * 可在线上按会话统计各指标的分位数
+ * <p>参数均为基本类型，回调过程不创建任何对象；没有设置监听时不计时也不回调，不会产生额外开销。
+ * 回调在主线程的布局过程中执行，实现中不要创建对象，也不要修改RecyclerView
+ *
+ * @author savion
+ */
+public interface CoverFlowMetricsListener {
+
+    /**
+     * RecyclerView布局，如首次布局、Adapter数据变化、尺寸变化
+     */
+    int SOURCE_LAYOUT = 0;
+
+    /**
+     * 手指拖拽
+     */
+    int SOURCE_GESTURE = 1;
+
+    /**
+     * 惯性滑动
+     */
+    int SOURCE_FLING = 2;
+
+    /**
+     * 程序发起的滚动，如smoothScrollToPosition、随机滚动、停止后的对齐
+     */
+    int SOURCE_ANIMATION = 3;
+
+    /**
+     * 一次布局完成
+     *
+     * @param layoutNanos 布局耗时，纳秒，包含Item的获取、绑定、测量与变换
+     * @param created     新创建的Item个数
+     * @param rebound     布局器可见的重新绑定次数：添加时换到新位置的Item（包括新创建的Item）与内容变化后重新添加的Item。
+     *                    只按布局器添加Item时的位置判断，预取等在Recycler内部发生的绑定不计入，
+     *                    不等同于Adapter的绑定次数；需要准确的绑定次数时在Adapter的onBindViewHolder中统计
+     * @param recycled    回收的Item个数
+     * @param attached    新添加的Item个数
+     * @param offset      当前总偏移量
+     * @param velocity    滚动速度，像素/秒，正值表示偏移量增加的方向，与上一次布局间隔过久时为0
+     * @param source      布局来源{@link #SOURCE_LAYOUT}、{@link #SOURCE_GESTURE}、{@link #SOURCE_FLING}、{@link #SOURCE_ANIMATION}
+     */
+    void onLayoutPass(long layoutNanos, int created, int rebound, int recycled, int attached,
+                      long offset, int velocity, int source);
+}
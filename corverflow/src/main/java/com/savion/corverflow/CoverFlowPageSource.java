@@ -0,0 +1,33 @@
+package com.savion.corverflow;
+
+import java.util.List;
+
+/**
+ * 分页数据源，供{@link CoverFlowPagedAdapter}按页加载数据
+ * <p>所有方法都在后台线程调用，可以直接读取文件、数据库或访问网络
+ *
+ * @author savion
+ */
+public interface CoverFlowPageSource<T> {
+
+    /**
+     * 数据总数未知
+     */
+    int COUNT_UNKNOWN = -1;
+
+    /**
+     * 加载数据总数
+     * <p>总数已知时未加载的位置显示为占位Item，Item个数始终不变；
+     * 返回{@link #COUNT_UNKNOWN}时不使用占位Item，页面加载或丢弃时插入或移除对应的Item
+     */
+    int loadCount() throws Exception;
+
+    /**
+     * 加载一页数据
+     *
+     * @param page     页码，从0开始
+     * @param pageSize 每页Item个数
+     * @return 该页的数据，总数未知时返回的个数少于pageSize表示已到末尾
+     */
+    List<T> loadPage(int page, int pageSize) throws Exception;
+}
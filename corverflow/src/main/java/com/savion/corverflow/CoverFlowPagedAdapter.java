@@ -0,0 +1,333 @@
+package com.savion.corverflow;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * 分页加载数据的Adapter
+ * <p>只在内存中保留居中位置附近的若干页数据：滚动时根据{@link CoverFlowLayoutManger}的居中位置与滚动方向，
+ * 在距已加载范围边缘不超过预加载距离时请求下一页，并丢弃离居中位置较远的页，见{@link PageWindow}
+ * <p>数据总数已知时未加载的位置为占位Item，{@link #getItem(int)}返回null；
+ * 总数未知时页面加载或丢弃会在首尾插入或移除Item，CoverFlowLayoutManger会保持当前居中的Item与偏移量不变
+ * <p>数据在{@link Config#setExecutor(Executor)}指定的线程池中加载，在主线程更新
+ *
+ * @author savion
+ */
+public abstract class CoverFlowPagedAdapter<T, VH extends RecyclerView.ViewHolder> extends RecyclerView.Adapter<VH> {
+
+    private static final String TAG = "CoverFlowPagedAdapter";
+
+    /**
+     * 加载总数失败时回调{@link #onLoadFailed(int, Exception)}的页码
+     */
+    public static final int PAGE_COUNT = -1;
+
+    private static ExecutorService sDefaultExecutor;
+
+    private final CoverFlowPageSource<T> mSource;
+    private final Config mConfig;
+    private final Executor mExecutor;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final PageWindow<T> mWindow;
+
+    private RecyclerView mRecyclerView;
+
+    /**
+     * 是否已开始加载，总数在第一次添加到RecyclerView时加载
+     */
+    private boolean mStarted = false;
+
+    /**
+     * 最近一次滚动的方向，静止时为0
+     */
+    private int mDirection = 0;
+
+    /**
+     * 滚动回调中不能修改Adapter，合并到下一次主线程消息中处理
+     */
+    private boolean mUpdatePending = false;
+
+    private final Runnable mUpdateRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mUpdatePending = false;
+            updateWindow();
+        }
+    };
+
+    private final RecyclerView.OnScrollListener mScrollListener = new RecyclerView.OnScrollListener() {
+        @Override
+        public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+            int direction = Integer.signum(dx != 0 ? dx : dy);
+            if (direction != 0) {
+                mDirection = direction;
+            }
+            scheduleUpdate();
+        }
+
+        @Override
+        public void onScrollStateChanged(@NonNull RecyclerView recyclerView, int newState) {
+            if (newState == RecyclerView.SCROLL_STATE_IDLE) {
+                //停止后向两侧预加载
+                mDirection = 0;
+                scheduleUpdate();
+            }
+        }
+    };
+
+    private final PageWindow.Callback mWindowCallback = new PageWindow.Callback() {
+        @Override
+        public void onLoadPage(int page) {
+            loadPage(page);
+        }
+
+        @Override
+        public void onItemRangeInserted(int position, int count) {
+            notifyItemRangeInserted(position, count);
+        }
+
+        @Override
+        public void onItemRangeRemoved(int position, int count) {
+            notifyItemRangeRemoved(position, count);
+        }
+
+        @Override
+        public void onItemRangeChanged(int position, int count) {
+            notifyItemRangeChanged(position, count);
+        }
+    };
+
+    protected CoverFlowPagedAdapter(CoverFlowPageSource<T> source) {
+        this(source, new Config());
+    }
+
+    protected CoverFlowPagedAdapter(CoverFlowPageSource<T> source, Config config) {
+        mSource = source;
+        mConfig = new Config(config);
+        mExecutor = mConfig.executor != null ? mConfig.executor : getDefaultExecutor();
+        mWindow = new PageWindow<>(mConfig.pageSize, mConfig.maxPages, mConfig.prefetchDistance, mWindowCallback);
+    }
+
+    private static synchronized Executor getDefaultExecutor() {
+        if (sDefaultExecutor == null) {
+            sDefaultExecutor = Executors.newSingleThreadExecutor();
+        }
+        return sDefaultExecutor;
+    }
+
+    @Override
+    public int getItemCount() {
+        return mWindow.size();
+    }
+
+    /**
+     * 获取位置对应的数据
+     *
+     * @return 所在的页尚未加载或已被丢弃时返回null，此时应显示占位内容
+     */
+    @Nullable
+    public T getItem(int position) {
+        return mWindow.get(position);
+    }
+
+    /**
+     * Adapter中的位置对应数据集中的位置
+     * <p>总数已知时两者相同；总数未知时首部的页被加载或丢弃后，Adapter中的位置会随之改变，数据集中的位置不变
+     */
+    public int getDataPosition(int position) {
+        return mWindow.toDataPosition(position);
+    }
+
+    /**
+     * 数据总数是否已知，已知时使用占位Item
+     */
+    public boolean hasPlaceholders() {
+        return mWindow.hasPlaceholders();
+    }
+
+    @Override
+    public void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onAttachedToRecyclerView(recyclerView);
+        mRecyclerView = recyclerView;
+        recyclerView.addOnScrollListener(mScrollListener);
+        if (!mStarted) {
+            mStarted = true;
+            loadCount();
+        } else {
+            scheduleUpdate();
+        }
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onDetachedFromRecyclerView(recyclerView);
+        recyclerView.removeOnScrollListener(mScrollListener);
+        mMainHandler.removeCallbacks(mUpdateRunnable);
+        mUpdatePending = false;
+        mRecyclerView = null;
+    }
+
+    private void scheduleUpdate() {
+        if (!mUpdatePending) {
+            mUpdatePending = true;
+            mMainHandler.post(mUpdateRunnable);
+        }
+    }
+
+    private void updateWindow() {
+        //有未布局的Item变化时居中位置还是变化前的，页面加载后窗口会按数据集中的位置自行更新
+        if (mRecyclerView == null || !(mRecyclerView.getLayoutManager() instanceof CoverFlowLayoutManger)
+                || getItemCount() <= 0 || mRecyclerView.hasPendingAdapterUpdates()) {
+            return;
+        }
+        CoverFlowLayoutManger layout = (CoverFlowLayoutManger) mRecyclerView.getLayoutManager();
+        mWindow.setLoop(layout.isLoop());
+        mWindow.onCenterChanged(layout.getCenterAdapterPosition(), mDirection);
+    }
+
+    private void loadCount() {
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                int count;
+                Exception error = null;
+                try {
+                    count = mSource.loadCount();
+                } catch (Exception e) {
+                    count = CoverFlowPageSource.COUNT_UNKNOWN;
+                    error = e;
+                }
+                final int total = count;
+                final Exception failure = error;
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (failure != null) {
+                            onLoadFailed(PAGE_COUNT, failure);
+                        }
+                        mWindow.setTotalCount(total);
+                        if (total > 0) {
+                            notifyItemRangeInserted(0, total);
+                        }
+                        mWindow.start(mConfig.initialPosition);
+                    }
+                });
+            }
+        });
+    }
+
+    private void loadPage(final int page) {
+        final int pageSize = mConfig.pageSize;
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                List<T> items = null;
+                Exception error = null;
+                try {
+                    items = mSource.loadPage(page, pageSize);
+                } catch (Exception e) {
+                    error = e;
+                }
+                final List<T> result = items;
+                final Exception failure = error;
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (failure != null) {
+                            onLoadFailed(page, failure);
+                        }
+                        if (result == null) {
+                            mWindow.onPageFailed(page);
+                        } else {
+                            mWindow.onPageLoaded(page, result);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * 数据加载失败，在主线程回调，默认输出警告日志
+     * <p>加载总数失败时按总数未知继续加载，加载页面失败时下次居中位置变化再重新请求
+     *
+     * @param page 失败的页码，加载总数失败时为{@link #PAGE_COUNT}
+     * @param e    {@link CoverFlowPageSource}抛出的异常
+     */
+    protected void onLoadFailed(int page, Exception e) {
+        Log.w(TAG, page == PAGE_COUNT ? "Failed to load count" : "Failed to load page " + page, e);
+    }
+
+    /**
+     * 分页配置
+     */
+    public static class Config {
+        int pageSize = 20;
+        int maxPages = 5;
+        int prefetchDistance = 10;
+        int initialPosition = 0;
+        Executor executor;
+
+        public Config() {
+        }
+
+        Config(Config other) {
+            pageSize = other.pageSize;
+            maxPages = other.maxPages;
+            prefetchDistance = other.prefetchDistance;
+            initialPosition = other.initialPosition;
+            executor = other.executor;
+        }
+
+        /**
+         * 每页Item个数，默认20
+         */
+        public Config setPageSize(int pageSize) {
+            this.pageSize = pageSize;
+            return this;
+        }
+
+        /**
+         * 内存中最多保留的页数，默认5；居中位置预加载距离内的页不会被丢弃
+         */
+        public Config setMaxPages(int maxPages) {
+            this.maxPages = maxPages;
+            return this;
+        }
+
+        /**
+         * 预加载距离，居中位置沿滚动方向距已加载范围的边缘不超过该Item个数时加载下一页，默认10
+         */
+        public Config setPrefetchDistance(int prefetchDistance) {
+            this.prefetchDistance = prefetchDistance;
+            return this;
+        }
+
+        /**
+         * 开始加载的位置，即数据集中最先加载的位置
+         * <p>总数已知时还需要将RecyclerCoverFlow滚动到该位置；总数未知时该位置所在页的第一个Item位于Adapter中的位置0
+         */
+        public Config setInitialPosition(int initialPosition) {
+            this.initialPosition = initialPosition;
+            return this;
+        }
+
+        /**
+         * 加载数据使用的线程池，默认所有分页Adapter共用一个后台线程
+         */
+        public Config setExecutor(Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+    }
+}
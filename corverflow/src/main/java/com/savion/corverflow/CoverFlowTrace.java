@@ -0,0 +1,61 @@
+package com.savion.corverflow;
+
+import androidx.tracing.Trace;
+
+/**
+ * 系统跟踪（Perfetto/systrace）的区段与计数器
+ * <p>由构建参数 -PcoverflowTrace=true 开启，默认关闭：{@link #ENABLED}为编译期常量，
+ * 关闭时各方法体被编译器移除，调用点在发布包中被R8内联删除；
+ * 开启时只有正在抓取跟踪时才写入，适合在内部测试包中常开
+ * <p>区段必须成对调用，且在同一线程中嵌套
+ *
+ * @author savion
+ */
+final class CoverFlowTrace {
+
+    static final boolean ENABLED = BuildConfig.COVERFLOW_TRACE;
+
+    static final String LAYOUT_CHILDREN = "CoverFlow#onLayoutChildren";
+    static final String LAYOUT_ITEMS = "CoverFlow#layoutItems";
+    static final String RECYCLE = "CoverFlow#recycle";
+    static final String ATTACH = "CoverFlow#attach";
+    static final String TRANSFORM = "CoverFlow#transform";
+    static final String APPLY_TRANSFORM = "CoverFlow#applyTransform";
+    static final String GREY_ITEM = "CoverFlow#greyItem";
+    static final String SNAP = "CoverFlow#snap";
+
+    /**
+     * 滚动区段，按{@link CoverFlowMetricsListener}的布局来源区分
+     */
+    static final String[] SCROLL = {
+            "CoverFlow#scroll:layout",
+            "CoverFlow#scroll:gesture",
+            "CoverFlow#scroll:fling",
+            "CoverFlow#scroll:animation"
+    };
+
+    static final String COUNTER_ATTACHED = "CoverFlow:attachedChildren";
+    static final String COUNTER_CENTER = "CoverFlow:centerPosition";
+    static final String COUNTER_REBOUND = "CoverFlow:reboundPerFrame";
+
+    private CoverFlowTrace() {
+    }
+
+    static void begin(String section) {
+        if (ENABLED) {
+            Trace.beginSection(section);
+        }
+    }
+
+    static void end() {
+        if (ENABLED) {
+            Trace.endSection();
+        }
+    }
+
+    static void counter(String name, int value) {
+        if (ENABLED && Trace.isEnabled()) {
+            Trace.setCounter(name, value);
+        }
+    }
+}
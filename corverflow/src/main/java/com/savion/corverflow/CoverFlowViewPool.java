@@ -0,0 +1,88 @@
+package com.savion.corverflow;
+
+import android.util.SparseBooleanArray;
+
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.ArrayList;
+
+/**
+ * 多个{@link RecyclerCoverFlow}共享的Item缓存池
+ * <p>通过{@link RecyclerCoverFlow#setUseSharedViewPool(boolean)}加入，每种ViewType的缓存个数
+ * 为所有已添加到窗口的成员最大可见Item个数之和，成员布局或移除时自动调整，移除后多余的缓存会被释放
+ * <p>只在主线程使用
+ *
+ * @author savion
+ */
+public class CoverFlowViewPool extends RecyclerView.RecycledViewPool {
+
+    private static CoverFlowViewPool sShared;
+
+    /**
+     * 已添加到窗口的成员
+     */
+    private final ArrayList<RecyclerCoverFlow> mMembers = new ArrayList<>();
+
+    /**
+     * 出现过的ViewType
+     */
+    private final SparseBooleanArray mViewTypes = new SparseBooleanArray();
+
+    /**
+     * 当前每种ViewType的缓存个数
+     */
+    private int mCapacity = 0;
+
+    /**
+     * 获取全局共享的缓存池
+     */
+    public static CoverFlowViewPool getShared() {
+        if (sShared == null) {
+            sShared = new CoverFlowViewPool();
+        }
+        return sShared;
+    }
+
+    void register(RecyclerCoverFlow view) {
+        if (!mMembers.contains(view)) {
+            mMembers.add(view);
+            updateCapacity();
+        }
+    }
+
+    void unregister(RecyclerCoverFlow view) {
+        if (mMembers.remove(view)) {
+            updateCapacity();
+        }
+    }
+
+    /**
+     * 按成员的最大可见Item个数重新计算缓存个数，容量减小时多余的缓存会被丢弃
+     */
+    void updateCapacity() {
+        int capacity = 0;
+        for (int i = 0; i < mMembers.size(); i++) {
+            RecyclerView.LayoutManager layout = mMembers.get(i).getLayoutManager();
+            if (layout instanceof CoverFlowLayoutManger) {
+                capacity += ((CoverFlowLayoutManger) layout).getMaxVisibleCount();
+            }
+        }
+        if (capacity == mCapacity) {
+            return;
+        }
+        mCapacity = capacity;
+        for (int i = 0; i < mViewTypes.size(); i++) {
+            setMaxRecycledViews(mViewTypes.keyAt(i), capacity);
+        }
+    }
+
+    @Override
+    public void putRecycledView(RecyclerView.ViewHolder scrap) {
+        int viewType = scrap.getItemViewType();
+        if (!mViewTypes.get(viewType)) {
+            mViewTypes.put(viewType, true);
+            setMaxRecycledViews(viewType, mCapacity);
+        }
+        super.putRecycledView(scrap);
+    }
+}
@@ -0,0 +1,242 @@
+package com.savion.corverflow;
+
+/**
+ * Item偏移量索引
+ * <p>每个Item占据的间隔距离为 Item主轴尺寸 x 间隔比例，使用树状数组（Fenwick Tree）保存这些间隔的前缀和，
+ * 支持 O(log n) 的 位置→偏移量、偏移量→位置 查询，单个Item尺寸变化时也只需 O(log n) 的增量更新
+ * <p>未测量过的Item使用默认尺寸，测量后通过{@link #setSize(int, int)}更新
+ *
+ * @author savion
+ */
+class ItemOffsetIndex {
+
+    /**
+     * Item个数
+     */
+    private int mCount = 0;
+
+    /**
+     * 未测量Item的默认主轴尺寸
+     */
+    private int mDefaultSize = 0;
+
+    /**
+     * Item间隔与Item尺寸的比例
+     */
+    private float mRatio = 0f;
+
+    /**
+     * 各Item的主轴尺寸
+     */
+    private int[] mSizes = new int[0];
+
+    /**
+     * 各Item占据的间隔距离
+     */
+    private int[] mExtents = new int[0];
+
+    /**
+     * 树状数组，下标从1开始
+     */
+    private long[] mTree = new long[1];
+
+    /**
+     * 所有Item间隔之和
+     */
+    private long mTotal = 0;
+
+    /**
+     * 记录过的最大Item尺寸，用于估算可见范围
+     */
+    private int mMaxSize = 0;
+
+    /**
+     * 重建索引，所有Item使用相同的默认尺寸，O(n)
+     *
+     * @param count       Item个数
+     * @param defaultSize 默认主轴尺寸
+     * @param ratio       间隔比例
+     */
+    void reset(int count, int defaultSize, float ratio) {
+        mCount = Math.max(count, 0);
+        mDefaultSize = defaultSize;
+        mRatio = ratio;
+        if (mSizes.length < mCount) {
+            mSizes = new int[mCount];
+            mExtents = new int[mCount];
+            mTree = new long[mCount + 1];
+        }
+        int extent = extentOf(defaultSize);
+        for (int i = 0; i < mCount; i++) {
+            mSizes[i] = defaultSize;
+            mExtents[i] = extent;
+        }
+        mMaxSize = defaultSize;
+        rebuild();
+    }
+
+    /**
+     * 在指定位置插入使用默认尺寸的Item，O(n)
+     */
+    void insert(int start, int count) {
+        ensureCapacity(mCount + count);
+        System.arraycopy(mSizes, start, mSizes, start + count, mCount - start);
+        System.arraycopy(mExtents, start, mExtents, start + count, mCount - start);
+        int extent = extentOf(mDefaultSize);
+        for (int i = start; i < start + count; i++) {
+            mSizes[i] = mDefaultSize;
+            mExtents[i] = extent;
+        }
+        mCount += count;
+        rebuild();
+    }
+
+    /**
+     * 移除指定范围的Item，O(n)
+     */
+    void remove(int start, int count) {
+        System.arraycopy(mSizes, start + count, mSizes, start, mCount - start - count);
+        System.arraycopy(mExtents, start + count, mExtents, start, mCount - start - count);
+        mCount -= count;
+        rebuild();
+    }
+
+    /**
+     * 将一个Item从from移动到to，O(n)
+     */
+    void move(int from, int to) {
+        int size = mSizes[from];
+        int extent = mExtents[from];
+        if (from < to) {
+            System.arraycopy(mSizes, from + 1, mSizes, from, to - from);
+            System.arraycopy(mExtents, from + 1, mExtents, from, to - from);
+        } else {
+            System.arraycopy(mSizes, to, mSizes, to + 1, from - to);
+            System.arraycopy(mExtents, to, mExtents, to + 1, from - to);
+        }
+        mSizes[to] = size;
+        mExtents[to] = extent;
+        rebuild();
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (mSizes.length >= capacity) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, mSizes.length + (mSizes.length >> 1));
+        int[] sizes = new int[newCapacity];
+        int[] extents = new int[newCapacity];
+        System.arraycopy(mSizes, 0, sizes, 0, mCount);
+        System.arraycopy(mExtents, 0, extents, 0, mCount);
+        mSizes = sizes;
+        mExtents = extents;
+        mTree = new long[newCapacity + 1];
+    }
+
+    /**
+     * 根据{@link #mExtents}线性构建树状数组
+     */
+    private void rebuild() {
+        long total = 0;
+        for (int i = 1; i <= mCount; i++) {
+            mTree[i] = mExtents[i - 1];
+            total += mExtents[i - 1];
+        }
+        for (int i = 1; i <= mCount; i++) {
+            int parent = i + (i & -i);
+            if (parent <= mCount) {
+                mTree[parent] += mTree[i];
+            }
+        }
+        mTotal = total;
+    }
+
+    /**
+     * 更新某个Item的主轴尺寸，O(log n)
+     *
+     * @return 尺寸是否发生了变化
+     */
+    boolean setSize(int position, int size) {
+        if (mSizes[position] == size) {
+            return false;
+        }
+        mSizes[position] = size;
+        mMaxSize = Math.max(mMaxSize, size);
+        int extent = extentOf(size);
+        int delta = extent - mExtents[position];
+        if (delta != 0) {
+            mExtents[position] = extent;
+            mTotal += delta;
+            for (int i = position + 1; i <= mCount; i += i & -i) {
+                mTree[i] += delta;
+            }
+        }
+        return true;
+    }
+
+    int getCount() {
+        return mCount;
+    }
+
+    int getDefaultSize() {
+        return mDefaultSize;
+    }
+
+    float getRatio() {
+        return mRatio;
+    }
+
+    int getSize(int position) {
+        return mSizes[position];
+    }
+
+    int getExtent(int position) {
+        return mExtents[position];
+    }
+
+    int getMaxSize() {
+        return mMaxSize;
+    }
+
+    long getTotal() {
+        return mTotal;
+    }
+
+    /**
+     * 获取位置之前所有Item的间隔之和，O(log n)
+     *
+     * @param position 取值范围 [0, count]
+     */
+    long getStart(int position) {
+        long sum = 0;
+        for (int i = position; i > 0; i -= i & -i) {
+            sum += mTree[i];
+        }
+        return sum;
+    }
+
+    /**
+     * 查找间隔区间包含该偏移量的Item位置，即满足 getStart(p) <= offset 的最大位置，O(log n)
+     *
+     * @param offset 偏移量，超出范围时返回第一个或最后一个位置
+     */
+    int findPosition(long offset) {
+        if (mCount == 0 || offset < 0) {
+            return 0;
+        }
+        int position = 0;
+        long remaining = offset;
+        for (int step = Integer.highestOneBit(mCount); step > 0; step >>= 1) {
+            int next = position + step;
+            if (next <= mCount && mTree[next] <= remaining) {
+                position = next;
+                remaining -= mTree[next];
+            }
+        }
+        return Math.min(position, mCount - 1);
+    }
+
+    private int extentOf(int size) {
+        return Math.round(size * mRatio);
+    }
+}
@@ -0,0 +1,130 @@
+package com.savion.corverflow;
+
+/**
+ * 一个Item在本次布局中要写入的变换属性
+ * <p>由{@link ItemTransformer}写入，未设置的属性为默认值，与被设置过的属性一起写入View，
+ * 因此关闭某个变换效果后，Item会恢复为未变换的状态
+ *
+ * @author savion
+ */
+public final class ItemTransform {
+
+    float scaleX;
+    float scaleY;
+    float alpha;
+    float rotationX;
+    float rotationY;
+    float translationX;
+    float translationY;
+    float grey;
+
+    /**
+     * 内置变换器使用的曲线表、Item距离对应的表下标及3D旋转的归一化系数
+     */
+    TransformCurves curves;
+    int sample;
+    float rotationScale;
+
+    ItemTransform() {
+    }
+
+    /**
+     * 开始变换一个新的Item，所有属性恢复为默认值
+     */
+    void reset(int sample) {
+        this.sample = sample;
+        scaleX = 1f;
+        scaleY = 1f;
+        alpha = 1f;
+        rotationX = 0f;
+        rotationY = 0f;
+        translationX = 0f;
+        translationY = 0f;
+        grey = 1f;
+    }
+
+    /**
+     * 同时设置横向、纵向缩放
+     */
+    public ItemTransform setScale(float scale) {
+        setScaleX(scale);
+        return setScaleY(scale);
+    }
+
+    public ItemTransform setScaleX(float scaleX) {
+        this.scaleX = scaleX;
+        return this;
+    }
+
+    public ItemTransform setScaleY(float scaleY) {
+        this.scaleY = scaleY;
+        return this;
+    }
+
+    public ItemTransform setAlpha(float alpha) {
+        this.alpha = alpha;
+        return this;
+    }
+
+    public ItemTransform setRotationX(float rotationX) {
+        this.rotationX = rotationX;
+        return this;
+    }
+
+    public ItemTransform setRotationY(float rotationY) {
+        this.rotationY = rotationY;
+        return this;
+    }
+
+    public ItemTransform setTranslationX(float translationX) {
+        this.translationX = translationX;
+        return this;
+    }
+
+    public ItemTransform setTranslationY(float translationY) {
+        this.translationY = translationY;
+        return this;
+    }
+
+    /**
+     * 设置灰度系数
+     *
+     * @param grey 取值范围[0, 1]，1为全彩色，Item使用带灰度画笔的硬件图层绘制
+     */
+    public ItemTransform setGrey(float grey) {
+        this.grey = grey;
+        return this;
+    }
+
+    public float getScaleX() {
+        return scaleX;
+    }
+
+    public float getScaleY() {
+        return scaleY;
+    }
+
+    public float getAlpha() {
+        return alpha;
+    }
+
+    public float getRotationX() {
+        return rotationX;
+    }
+
+    public float getRotationY() {
+        return rotationY;
+    }
+
+    public float getTranslationX() {
+        return translationX;
+    }
+
+    public float getTranslationY() {
+        return translationY;
+    }
+
+    public float getGrey() {
+        return grey;
+    }
+}
@@ -0,0 +1,29 @@
+package com.savion.corverflow;
+
+import android.view.View;
+
+import androidx.recyclerview.widget.OrientationHelper;
+
+/**
+ * Item变换器
+ * <p>每次布局时，{@link CoverFlowLayoutManger}对每个Item只计算一次到布局中线的距离，
+ * 然后依次调用注册的变换器，变换器把要修改的属性写入{@link ItemTransform}，
+ * 全部变换器执行完后，只有发生变化的属性才会被一次性写入View
+ * <p>内置的缩放、半透、灰度、3D倾斜效果也是通过变换器实现的，
+ * 通过{@link RecyclerCoverFlow#addItemTransformer(ItemTransformer)}注册自定义效果
+ * <p>变换器在每一帧滚动中都会被调用，实现中不要创建对象
+ *
+ * @author savion
+ */
+public interface ItemTransformer {
+
+    /**
+     * 计算Item的变换属性
+     *
+     * @param child       要变换的Item
+     * @param offset      归一化的距离：Item中点到布局中线的距离除以Item间隔，居中时为0，中线之后为正值
+     * @param orientation 布局方向{@link OrientationHelper#HORIZONTAL}或{@link OrientationHelper#VERTICAL}
+     * @param transform   写入变换属性，前面的变换器写入的属性可以通过get方法读取
+     */
+    void transformItem(View child, float offset, int orientation, ItemTransform transform);
+}
@@ -0,0 +1,61 @@
+package com.savion.corverflow;
+
+import android.view.View;
+
+import androidx.recyclerview.widget.OrientationHelper;
+
+/**
+ * 内置的Item变换器，效果曲线从{@link TransformCurves}查表得到
+ *
+ * @author savion
+ */
+final class ItemTransformers {
+
+    /**
+     * 缩放，离中线越远越小
+     */
+    static final ItemTransformer SCALE = new ItemTransformer() {
+        @Override
+        public void transformItem(View child, float offset, int orientation, ItemTransform transform) {
+            transform.setScale(transform.curves.getScale(transform.sample));
+        }
+    };
+
+    /**
+     * 半透，离中线越远越透明
+     */
+    static final ItemTransformer ALPHA = new ItemTransformer() {
+        @Override
+        public void transformItem(View child, float offset, int orientation, ItemTransform transform) {
+            transform.setAlpha(transform.curves.getAlpha(transform.sample));
+        }
+    };
+
+    /**
+     * 灰度，离中线越远越灰
+     */
+    static final ItemTransformer GREY = new ItemTransformer() {
+        @Override
+        public void transformItem(View child, float offset, int orientation, ItemTransform transform) {
+            transform.setGrey(transform.curves.getGrey(transform.sample));
+        }
+    };
+
+    /**
+     * 3D倾斜，横向绕Y轴，纵向绕X轴，两侧的Item朝向中线
+     */
+    static final ItemTransformer ROTATION_3D = new ItemTransformer() {
+        @Override
+        public void transformItem(View child, float offset, int orientation, ItemTransform transform) {
+            float rotation = transform.curves.getRotation(transform.sample, transform.rotationScale);
+            if (orientation == OrientationHelper.HORIZONTAL) {
+                transform.setRotationY(offset > 0 ? -rotation : rotation);
+            } else {
+                transform.setRotationX(offset > 0 ? rotation : -rotation);
+            }
+        }
+    };
+
+    private ItemTransformers() {
+    }
+}
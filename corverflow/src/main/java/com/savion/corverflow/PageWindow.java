@@ -0,0 +1,374 @@
+package com.savion.corverflow;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * 分页数据的滑动窗口
+ * <p>只在内存中保留居中位置附近的若干页：居中位置沿滚动方向距已加载范围的边缘不超过预加载距离时请求下一页，
+ * 已加载的页数超出上限时丢弃离居中位置最远的页
+ * <p>总数已知时Item个数等于总数，未加载的位置为占位Item，页面加载或丢弃只会更新对应范围；
+ * 总数未知时已加载的页必须连续，在首尾加载或丢弃页面时插入或移除对应的Item
+ * <p>窗口内部使用数据集中的位置（页码 x 每页个数 + 页内位置），与Adapter中的位置互相转换，
+ * 首部插入或移除Item时数据集中的位置不变。只使用基本类型与集合，可以直接在JVM上测试
+ *
+ * @author savion
+ */
+final class PageWindow<T> {
+
+    /**
+     * 页面变化的回调，Item变化的位置均为Adapter中的位置
+     */
+    interface Callback {
+
+        /**
+         * 请求加载一页数据，加载完成后调用{@link #onPageLoaded(int, List)}或{@link #onPageFailed(int)}
+         */
+        void onLoadPage(int page);
+
+        void onItemRangeInserted(int position, int count);
+
+        void onItemRangeRemoved(int position, int count);
+
+        void onItemRangeChanged(int position, int count);
+    }
+
+    /**
+     * 尚未确定居中位置
+     */
+    private static final int NO_CENTER = Integer.MIN_VALUE;
+
+    private final int mPageSize;
+
+    /**
+     * 最多保留的页数，居中页两侧 预加载距离 / 每页个数 + 1 页以内的页不受限制
+     */
+    private final int mMaxPages;
+
+    /**
+     * 预加载距离，Item个数
+     */
+    private final int mPrefetchDistance;
+
+    private final Callback mCallback;
+
+    /**
+     * 数据总数，{@link CoverFlowPageSource#COUNT_UNKNOWN}表示未知
+     */
+    private int mTotalCount = CoverFlowPageSource.COUNT_UNKNOWN;
+
+    /**
+     * 是否无限循环，只在总数已知时生效
+     */
+    private boolean mLoop = false;
+
+    /**
+     * 已加载的页
+     */
+    private final HashMap<Integer, List<T>> mPages = new HashMap<>();
+
+    /**
+     * 正在加载的页，丢弃后到达的加载结果会被忽略
+     */
+    private final HashSet<Integer> mLoading = new HashSet<>();
+
+    /**
+     * 总数未知时已加载的连续页范围 [mFirstPage, mLastPage]
+     */
+    private int mFirstPage = 0;
+    private int mLastPage = -1;
+
+    /**
+     * 总数未知时已知的最后一页，加载到不满一页的数据后确定
+     */
+    private int mEndPage = Integer.MAX_VALUE;
+
+    /**
+     * 总数未知时已加载的Item个数
+     */
+    private int mSize = 0;
+
+    /**
+     * 居中Item在数据集中的位置
+     */
+    private int mCenter = NO_CENTER;
+
+    /**
+     * 滚动方向，正值表示位置增加的方向，0表示静止
+     */
+    private int mDirection = 0;
+
+    /**
+     * @param pageSize         每页Item个数
+     * @param maxPages         最多保留的页数
+     * @param prefetchDistance 预加载距离
+     */
+    PageWindow(int pageSize, int maxPages, int prefetchDistance, Callback callback) {
+        mPageSize = Math.max(pageSize, 1);
+        mMaxPages = Math.max(maxPages, 1);
+        mPrefetchDistance = Math.max(prefetchDistance, 0);
+        mCallback = callback;
+    }
+
+    /**
+     * 设置数据总数，只能在加载任何页之前调用
+     */
+    void setTotalCount(int count) {
+        mTotalCount = count < 0 ? CoverFlowPageSource.COUNT_UNKNOWN : count;
+    }
+
+    void setLoop(boolean loop) {
+        mLoop = loop;
+    }
+
+    boolean hasPlaceholders() {
+        return mTotalCount >= 0;
+    }
+
+    /**
+     * Adapter中的Item个数
+     */
+    int size() {
+        return hasPlaceholders() ? mTotalCount : mSize;
+    }
+
+    /**
+     * Adapter中位置对应的数据
+     *
+     * @return 未加载时返回null，即占位Item
+     */
+    T get(int position) {
+        int index = toDataPosition(position);
+        List<T> page = mPages.get(index / mPageSize);
+        int offset = index % mPageSize;
+        return page != null && offset < page.size() ? page.get(offset) : null;
+    }
+
+    /**
+     * Adapter中的位置转换为数据集中的位置
+     */
+    int toDataPosition(int position) {
+        return hasPlaceholders() ? position : mFirstPage * mPageSize + position;
+    }
+
+    int getLoadedPageCount() {
+        return mPages.size();
+    }
+
+    boolean isLoaded(int page) {
+        return mPages.containsKey(page);
+    }
+
+    /**
+     * 从数据集中的某个位置开始加载，总数未知时该位置所在的页成为已加载范围的起点
+     */
+    void start(int dataPosition) {
+        mCenter = Math.max(dataPosition, 0);
+        if (!hasPlaceholders()) {
+            mFirstPage = mCenter / mPageSize;
+            mLastPage = mFirstPage - 1;
+        }
+        update();
+    }
+
+    /**
+     * 居中位置或滚动方向变化
+     *
+     * @param position  居中Item在Adapter中的位置
+     * @param direction 滚动方向，正值表示位置增加的方向，0表示静止
+     */
+    void onCenterChanged(int position, int direction) {
+        if (size() <= 0) {
+            return;
+        }
+        mCenter = toDataPosition(position);
+        mDirection = Integer.signum(direction);
+        update();
+    }
+
+    void onPageLoaded(int page, List<T> items) {
+        if (!mLoading.remove(page)) {
+            //加载期间已被丢弃
+            return;
+        }
+        if (hasPlaceholders()) {
+            int length = getPageLength(page);
+            mPages.put(page, items.size() > length ? items.subList(0, length) : items);
+            mCallback.onItemRangeChanged(page * mPageSize, length);
+        } else {
+            int count = items.size();
+            if (count < mPageSize) {
+                mEndPage = count > 0 ? page : page - 1;
+            }
+            if (count > 0) {
+                insertPage(page, items);
+            }
+        }
+        update();
+    }
+
+    /**
+     * 加载失败，下次居中位置变化时重新请求
+     */
+    void onPageFailed(int page) {
+        mLoading.remove(page);
+    }
+
+    private void insertPage(int page, List<T> items) {
+        if (mLastPage < mFirstPage) {
+            mFirstPage = page;
+            mLastPage = page;
+            mPages.put(page, items);
+            mSize = items.size();
+            mCallback.onItemRangeInserted(0, items.size());
+        } else if (page == mLastPage + 1) {
+            mLastPage = page;
+            mPages.put(page, items);
+            mSize += items.size();
+            mCallback.onItemRangeInserted(mSize - items.size(), items.size());
+        } else if (page == mFirstPage - 1) {
+            mFirstPage = page;
+            mPages.put(page, items);
+            mSize += items.size();
+            mCallback.onItemRangeInserted(0, items.size());
+        }
+    }
+
+    /**
+     * 请求居中位置所在的页和滚动方向上预加载距离内的页，再丢弃多余的页
+     */
+    private void update() {
+        if (mCenter == NO_CENTER) {
+            return;
+        }
+        int center = getPageAt(mCenter);
+        if (center < 0) {
+            return;
+        }
+        request(center);
+        if (mDirection >= 0) {
+            prefetch(1);
+        }
+        if (mDirection <= 0) {
+            prefetch(-1);
+        }
+        evict(center);
+    }
+
+    private void prefetch(int direction) {
+        //每次前进不超过一页，预加载距离内的每一页都会被请求
+        for (int distance = mPageSize; ; distance += mPageSize) {
+            int page = getPageAt(mCenter + direction * Math.min(distance, mPrefetchDistance));
+            if (page >= 0) {
+                request(page);
+            }
+            if (distance >= mPrefetchDistance) {
+                break;
+            }
+        }
+    }
+
+    private void request(int page) {
+        if (mPages.containsKey(page) || mLoading.contains(page)) {
+            return;
+        }
+        if (!hasPlaceholders() && mLastPage >= mFirstPage
+                && page != mLastPage + 1 && page != mFirstPage - 1) {
+            //总数未知时只能在已加载范围的首尾加载，更远的页等相邻页加载后再请求
+            return;
+        }
+        mLoading.add(page);
+        mCallback.onLoadPage(page);
+    }
+
+    /**
+     * 丢弃离居中页最远的页，直到页数不超过上限；居中页两侧keep页以内的页不会被丢弃
+     */
+    private void evict(int center) {
+        int keep = mPrefetchDistance / mPageSize + 1;
+        while (mPages.size() > mMaxPages) {
+            int farthest = -1;
+            int farthestDistance = keep;
+            if (hasPlaceholders()) {
+                for (int page : mPages.keySet()) {
+                    int distance = getPageDistance(page, center);
+                    if (distance > farthestDistance) {
+                        farthest = page;
+                        farthestDistance = distance;
+                    }
+                }
+            } else if (center - mFirstPage >= mLastPage - center) {
+                farthest = center - mFirstPage > keep ? mFirstPage : -1;
+            } else {
+                farthest = mLastPage - center > keep ? mLastPage : -1;
+            }
+            if (farthest < 0) {
+                break;
+            }
+            removePage(farthest);
+        }
+        //离开预加载范围、尚未到达的页不再需要
+        if (!mLoading.isEmpty()) {
+            for (Iterator<Integer> it = mLoading.iterator(); it.hasNext(); ) {
+                if (getPageDistance(it.next(), center) > keep) {
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    private void removePage(int page) {
+        List<T> items = mPages.remove(page);
+        if (hasPlaceholders()) {
+            mCallback.onItemRangeChanged(page * mPageSize, getPageLength(page));
+        } else if (page == mFirstPage) {
+            mFirstPage++;
+            mSize -= items.size();
+            mCallback.onItemRangeRemoved(0, items.size());
+        } else {
+            mLastPage--;
+            mSize -= items.size();
+            mCallback.onItemRangeRemoved(mSize, items.size());
+        }
+    }
+
+    /**
+     * 数据集中位置所在的页，循环模式下取模，超出范围时返回-1
+     */
+    private int getPageAt(int dataPosition) {
+        if (hasPlaceholders()) {
+            if (mTotalCount == 0) {
+                return -1;
+            }
+            if (mLoop) {
+                dataPosition = CoverFlowGeometry.toAdapterPosition(dataPosition, mTotalCount);
+            } else if (dataPosition < 0 || dataPosition >= mTotalCount) {
+                return -1;
+            }
+            return dataPosition / mPageSize;
+        }
+        if (dataPosition < 0) {
+            return -1;
+        }
+        int page = dataPosition / mPageSize;
+        return page <= mEndPage ? page : -1;
+    }
+
+    private int getPageDistance(int page, int center) {
+        int distance = Math.abs(page - center);
+        if (hasPlaceholders() && mLoop) {
+            int pageCount = (mTotalCount + mPageSize - 1) / mPageSize;
+            distance = Math.min(distance, pageCount - distance);
+        }
+        return distance;
+    }
+
+    /**
+     * 总数已知时页的实际Item个数，最后一页可能不满
+     */
+    private int getPageLength(int page) {
+        return Math.min(mPageSize, mTotalCount - page * mPageSize);
+    }
+}
@@ -1,6 +1,7 @@
 package com.savion.corverflow;
 
 import android.content.Context;
+import android.content.res.TypedArray;
 import android.util.AttributeSet;
 import android.view.MotionEvent;
 
@@ -24,39 +25,59 @@ public class RecyclerCoverFlow extends RecyclerView {
     private float mDownY;
 
     /**
-     * 布局器构建者
+     * 是否使用多个RecyclerCoverFlow共享的缓存池
      */
-    private CoverFlowLayoutManger.Builder mManagerBuilder;
+    private boolean mUseSharedViewPool = false;
 
     public RecyclerCoverFlow(Context context) {
         super(context);
-        init();
+        init(context, null, 0);
     }
 
     public RecyclerCoverFlow(Context context, @Nullable AttributeSet attrs) {
         super(context, attrs);
-        init();
+        init(context, attrs, 0);
     }
 
     public RecyclerCoverFlow(Context context, @Nullable AttributeSet attrs, int defStyle) {
         super(context, attrs, defStyle);
-        init();
+        init(context, attrs, defStyle);
     }
 
-    private void init() {
-        createManageBuilder();
-        setLayoutManager(mManagerBuilder.build());
-        setChildrenDrawingOrderEnabled(true); //开启重新排序
+    /**
+     * 按XML属性创建布局器，布局器只创建一次
+     */
+    private void init(Context context, @Nullable AttributeSet attrs, int defStyle) {
+        CoverFlowLayoutManger.Builder builder = new CoverFlowLayoutManger.Builder();
+        boolean sharedViewPool = false;
+        if (attrs != null) {
+            TypedArray a = context.obtainStyledAttributes(attrs, R.styleable.RecyclerCoverFlow, defStyle, 0);
+            builder.setFlat(a.getBoolean(R.styleable.RecyclerCoverFlow_coverFlat, builder.isFlat))
+                    .setGreyItem(a.getBoolean(R.styleable.RecyclerCoverFlow_coverGreyItem, builder.isGreyItem))
+                    .setAlphaItem(a.getBoolean(R.styleable.RecyclerCoverFlow_coverAlphaItem, builder.isAlphaItem))
+                    .setLoop(a.getBoolean(R.styleable.RecyclerCoverFlow_coverLoop, builder.isLoop))
+                    .set3DItem(a.getBoolean(R.styleable.RecyclerCoverFlow_cover3DItem, builder.is3DItem))
+                    .setIntervalRatio(a.getFloat(R.styleable.RecyclerCoverFlow_coverIntervalRatio, builder.cstIntervalRatio))
+                    .setOrientation(a.getInt(R.styleable.RecyclerCoverFlow_coverOrientation, builder.orientation))
+                    .setMotionLayer(a.getBoolean(R.styleable.RecyclerCoverFlow_coverMotionLayer, builder.motionLayer))
+                    .setTranslationZOrder(a.getBoolean(R.styleable.RecyclerCoverFlow_coverTranslationZOrder, builder.translationZOrder))
+                    .setMaxFlingItems(a.getInt(R.styleable.RecyclerCoverFlow_coverMaxFlingItems, builder.maxFlingItems))
+                    .setPrefetchItemCount(a.getInt(R.styleable.RecyclerCoverFlow_coverPrefetchItemCount, builder.prefetchItemCount))
+                    .setLongJumpItems(a.getInt(R.styleable.RecyclerCoverFlow_coverLongJumpItems, builder.longJumpItems));
+            sharedViewPool = a.getBoolean(R.styleable.RecyclerCoverFlow_coverSharedViewPool, false);
+            a.recycle();
+        }
+        setLayoutManager(builder.build());
+        setChildrenDrawingOrderEnabled(!builder.translationZOrder); //开启重新排序
         setOverScrollMode(OVER_SCROLL_NEVER);
+        setUseSharedViewPool(sharedViewPool);
     }
 
     /**
-     * 创建布局构建器
+     * 开始一次配置修改，多项修改在{@link CoverFlowLayoutManger.Editor#commit()}时统一生效
      */
-    private void createManageBuilder() {
-        if (mManagerBuilder == null) {
-            mManagerBuilder = new CoverFlowLayoutManger.Builder();
-        }
+    public CoverFlowLayoutManger.Editor edit() {
+        return getCoverFlowLayout().edit();
     }
 
     /**
@@ -65,9 +86,7 @@ public class RecyclerCoverFlow extends RecyclerView {
      * @param isFlat true:平面滚动；false:叠加缩放滚动
      */
     public void setFlatFlow(boolean isFlat) {
-        createManageBuilder();
-        mManagerBuilder.setFlat(isFlat);
-        setLayoutManager(mManagerBuilder.build());
+        edit().setFlatFlow(isFlat).commit();
     }
 
     /**
@@ -76,9 +95,7 @@ public class RecyclerCoverFlow extends RecyclerView {
      * @param greyItem true:Item灰度渐变；false:Item灰度不变
      */
     public void setGreyItem(boolean greyItem) {
-        createManageBuilder();
-        mManagerBuilder.setGreyItem(greyItem);
-        setLayoutManager(mManagerBuilder.build());
+        edit().setGreyItem(greyItem).commit();
     }
 
     /**
@@ -87,18 +104,14 @@ public class RecyclerCoverFlow extends RecyclerView {
      * @param alphaItem true:Item半透渐变；false:Item透明度不变
      */
     public void setAlphaItem(boolean alphaItem) {
-        createManageBuilder();
-        mManagerBuilder.setAlphaItem(alphaItem);
-        setLayoutManager(mManagerBuilder.build());
+        edit().setAlphaItem(alphaItem).commit();
     }
 
     /**
      * 设置无限循环滚动
      */
     public void setLoop() {
-        createManageBuilder();
-        mManagerBuilder.loop();
-        setLayoutManager(mManagerBuilder.build());
+        edit().setLoop(true).commit();
     }
 
     /**
@@ -107,9 +120,59 @@ public class RecyclerCoverFlow extends RecyclerView {
      * @param d3 true：Item 3d 倾斜；false：Item 正常摆放
      */
     public void set3DItem(boolean d3) {
-        createManageBuilder();
-        mManagerBuilder.set3DItem(d3);
-        setLayoutManager(mManagerBuilder.build());
+        edit().set3DItem(d3).commit();
+    }
+
+    /**
+     * 设置滚动过程中是否为Item开启硬件图层
+     * <p>Item布局层级较深时，滚动中只有缩放、透明度、旋转、位置变化，开启后不需要每帧重新录制Item内容，
+     * 停止滚动后图层关闭；同时开启的图层个数受内存限制
+     *
+     * @param enabled true：滚动中开启硬件图层；false：不开启
+     */
+    public void setMotionLayerEnabled(boolean enabled) {
+        edit().setMotionLayerEnabled(enabled).commit();
+    }
+
+    /**
+     * 设置是否通过Z值控制Item的叠放顺序
+     * <p>开启后按Item离中间的距离设置translationZ，由RenderThread排序绘制，不再使用{@link #getChildDrawingOrder(int, int)}
+     *
+     * @param enabled true：使用translationZ；false：使用自定义绘制顺序
+     */
+    public void setTranslationZOrderEnabled(boolean enabled) {
+        setChildrenDrawingOrderEnabled(!enabled);
+        edit().setTranslationZOrderEnabled(enabled).commit();
+    }
+
+    /**
+     * 设置预取的Item个数
+     * <p>滚动时，沿滚动方向可见范围外的Item会在帧间空闲时提前创建并绑定；
+     * 嵌套在列表中时，进入屏幕前会预取居中Item两侧的Item
+     *
+     * @param count 预取的Item个数，小于等于0时不预取
+     */
+    public void setPrefetchItemCount(int count) {
+        edit().setPrefetchItemCount(count).commit();
+    }
+
+    /**
+     * 设置一次惯性滑动最多经过的Item个数
+     *
+     * @param max 最多经过的Item个数，小于等于0时不限制
+     */
+    public void setMaxFlingItems(int max) {
+        edit().setMaxFlingItems(max).commit();
+    }
+
+    /**
+     * 设置远距离平滑滚动的阈值
+     * <p>平滑滚动经过的Item个数超过阈值时，先瞬移到目标附近，只动画最后几个Item；循环模式下沿较短的方向绕圈
+     *
+     * @param items 阈值Item个数，小于等于0时不瞬移
+     */
+    public void setLongJumpItems(int items) {
+        edit().setLongJumpItems(items).commit();
     }
 
     /**
@@ -119,9 +182,7 @@ public class RecyclerCoverFlow extends RecyclerView {
      *                      即：item的宽 x intervalRatio
      */
     public void setIntervalRatio(float intervalRatio) {
-        createManageBuilder();
-        mManagerBuilder.setIntervalRatio(intervalRatio);
-        setLayoutManager(mManagerBuilder.build());
+        edit().setIntervalRatio(intervalRatio).commit();
     }
 
     /**
@@ -132,41 +193,94 @@ public class RecyclerCoverFlow extends RecyclerView {
      * {@link OrientationHelper#VERTICAL}
      **/
     public void setOrientation(int orientation) {
-        createManageBuilder();
-        mManagerBuilder.setOrientation(orientation);
-        setLayoutManager(mManagerBuilder.build());
+        edit().setOrientation(orientation).commit();
+    }
+
+    /**
+     * 添加自定义的Item变换器，在内置效果之后执行
+     *
+     * @param transformer Item变换器
+     */
+    public void addItemTransformer(ItemTransformer transformer) {
+        edit().addItemTransformer(transformer).commit();
+    }
+
+    /**
+     * 移除自定义的Item变换器
+     *
+     * @param transformer Item变换器
+     */
+    public void removeItemTransformer(ItemTransformer transformer) {
+        edit().removeItemTransformer(transformer).commit();
+    }
+
+    /**
+     * 设置是否使用共享缓存池{@link CoverFlowViewPool#getShared()}
+     * <p>页面中有多个RecyclerCoverFlow时开启，Item在各RecyclerCoverFlow之间复用，缓存个数按可见Item个数自动调整
+     *
+     * @param use true：使用共享缓存池；false：使用独立的缓存池
+     */
+    public void setUseSharedViewPool(boolean use) {
+        if (mUseSharedViewPool == use) {
+            return;
+        }
+        mUseSharedViewPool = use;
+        CoverFlowViewPool pool = CoverFlowViewPool.getShared();
+        if (use) {
+            setRecycledViewPool(pool);
+            if (isAttachedToWindow()) {
+                pool.register(this);
+            }
+        } else {
+            pool.unregister(this);
+            setRecycledViewPool(null);
+        }
+        if (getLayoutManager() instanceof CoverFlowLayoutManger) {
+            getCoverFlowLayout().setRecycleChildrenOnDetach(use);
+        }
     }
 
     @Override
     public void setLayoutManager(LayoutManager layout) {
-        if (!(layout instanceof CoverFlowLayoutManger)) {
-            throw new IllegalArgumentException("The layout manager must be CoverFlowLayoutManger");
+        if (layout instanceof CoverFlowLayoutManger) {
+            ((CoverFlowLayoutManger) layout).setRecycleChildrenOnDetach(mUseSharedViewPool);
         }
         super.setLayoutManager(layout);
     }
 
     @Override
-    protected int getChildDrawingOrder(int childCount, int i) {
-        int center = getCoverFlowLayout().getCenterPosition();
-        // 获取 RecyclerView 中第 i 个 子 view 的实际位置
-        int actualPos = getCoverFlowLayout().getChildActualPos(i);
-
-        // 距离中间item的间隔数
-        int dist = actualPos - center;
-        int order;
-        if (dist < 0) { // [< 0] 说明 item 位于中间 item 左边，按循序绘制即可
-            order = i;
-        } else { // [>= 0] 说明 item 位于中间 item 右边，需要将顺序颠倒绘制
-            order = childCount - 1 - dist;
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        if (mUseSharedViewPool) {
+            CoverFlowViewPool.getShared().register(this);
         }
+    }
 
-        if (order < 0) {
-            order = 0;
-        } else if (order > childCount - 1) {
-            order = childCount - 1;
+    @Override
+    protected void onDetachedFromWindow() {
+        //先由LayoutManger把Item回收到缓存池，再按剩余成员调整缓存个数
+        super.onDetachedFromWindow();
+        if (mUseSharedViewPool) {
+            CoverFlowViewPool.getShared().unregister(this);
         }
+    }
 
-        return order;
+    @Override
+    protected void onLayout(boolean changed, int l, int t, int r, int b) {
+        super.onLayout(changed, l, t, r, b);
+        if (mUseSharedViewPool && isAttachedToWindow()) {
+            //布局后可见Item个数才确定
+            CoverFlowViewPool.getShared().updateCapacity();
+        }
+    }
+
+    @Override
+    protected int getChildDrawingOrder(int childCount, int i) {
+        if (!(getLayoutManager() instanceof CoverFlowLayoutManger)) {
+            return i;
+        }
+        // 绘制顺序由LayoutManger在布局时计算好，这里直接读取
+        return getCoverFlowLayout().getChildDrawingOrder(childCount, i);
     }
 
     /**
@@ -228,6 +342,33 @@ public class RecyclerCoverFlow extends RecyclerView {
         getCoverFlowLayout().setOnSelectedListener(l);
     }
 
+    /**
+     * 设置布局性能指标监听，每次布局或滚动后回调
+     *
+     * @param l 监听接口，为null时不计时也不回调
+     */
+    public void setMetricsListener(CoverFlowMetricsListener l) {
+        getCoverFlowLayout().setMetricsListener(l);
+    }
+
+    @Override
+    public boolean onInterceptTouchEvent(MotionEvent e) {
+        if (!getCoverFlowLayout().isGestureEnabled()) {
+            //锁定手势的滚动过程中不拦截，避免按下时停止滚动
+            return false;
+        }
+        return super.onInterceptTouchEvent(e);
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent e) {
+        if (!getCoverFlowLayout().isGestureEnabled()) {
+            //锁定手势的滚动过程中消费掉事件，避免抬起时停止滚动
+            return true;
+        }
+        return super.onTouchEvent(e);
+    }
+
     @Override
     public boolean dispatchTouchEvent(MotionEvent ev) {
         switch (ev.getAction()) {
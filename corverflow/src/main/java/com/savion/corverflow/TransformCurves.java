@@ -0,0 +1,159 @@
+package com.savion.corverflow;
+
+import java.util.ArrayList;
+
+/**
+ * Item变换曲线表
+ * <p>缩放、半透、灰度、3D旋转都只与Item中点到布局中线的距离有关，按距离量化后预先计算成float表，
+ * 滚动时每个Item只需计算一次距离，各效果都变为查表
+ * <p>曲线表只在可见空间、Item尺寸、间隔比例或起始坐标变化时重建，
+ * 配置相同的多个{@link CoverFlowLayoutManger}共享同一份曲线表；
+ * 3D旋转还与Item总间隔有关，表中只保存未归一化的角度，查表时乘以{@link #getRotationScale(long)}，
+ * 增删Item不会重建曲线表
+ *
+ * @author savion
+ */
+final class TransformCurves {
+
+    /**
+     * 每像素距离的采样数
+     */
+    static final int SAMPLES_PER_PIXEL = 2;
+
+    /**
+     * 最多共享的曲线表个数，超出后丢弃最久未使用的
+     */
+    private static final int MAX_SHARED_CURVES = 4;
+
+    /**
+     * 共享的曲线表，最近使用的在末尾
+     */
+    private static final ArrayList<TransformCurves> sSharedCurves = new ArrayList<>(MAX_SHARED_CURVES);
+
+    /**
+     * 主轴方向的可见空间
+     */
+    private final int mSpace;
+
+    /**
+     * 主轴方向的Item默认尺寸
+     */
+    private final int mItemSize;
+
+    /**
+     * Item间隔与Item尺寸的比例
+     */
+    private final float mRatio;
+
+    /**
+     * 起始Item在主轴方向的坐标
+     */
+    private final int mStart;
+
+    private final float[] mScales;
+    private final float[] mAlphas;
+    private final float[] mGreys;
+    private final float[] mRotations;
+
+    private TransformCurves(int space, int itemSize, float ratio, int start) {
+        mSpace = space;
+        mItemSize = itemSize;
+        mRatio = ratio;
+        mStart = start;
+        //距离超过可见空间的Item已不可见，超出表范围的距离取最后一项
+        int length = Math.max(space, 0) * SAMPLES_PER_PIXEL + 1;
+        mScales = new float[length];
+        mAlphas = new float[length];
+        mGreys = new float[length];
+        mRotations = new float[length];
+        float fadeDistance = Math.abs(start + itemSize / ratio);
+        float halfSpace = space / 2f;
+        for (int i = 0; i < length; i++) {
+            float distance = i * 1f / SAMPLES_PER_PIXEL;
+            float fade = fadeDistance > 0 ? 1 - distance / fadeDistance : 1f;
+            mScales[i] = clamp(fade, 0f, 1f);
+            mAlphas[i] = clamp(fade, 0.3f, 1f);
+            float grey = halfSpace > 0 ? 1 - distance / halfSpace : 1f;
+            mGreys[i] = (float) Math.pow(clamp(grey, 0.1f, 1f), .8);
+            mRotations[i] = 50f * (float) Math.sqrt(distance);
+        }
+    }
+
+    /**
+     * 获取与配置对应的曲线表，已有相同配置的曲线表时直接共享
+     *
+     * @param space    主轴方向的可见空间
+     * @param itemSize 主轴方向的Item默认尺寸
+     * @param ratio    间隔比例
+     * @param start    起始Item在主轴方向的坐标
+     */
+    static TransformCurves obtain(int space, int itemSize, float ratio, int start) {
+        synchronized (sSharedCurves) {
+            for (int i = sSharedCurves.size() - 1; i >= 0; i--) {
+                TransformCurves curves = sSharedCurves.get(i);
+                if (curves.matches(space, itemSize, ratio, start)) {
+                    sSharedCurves.remove(i);
+                    sSharedCurves.add(curves);
+                    return curves;
+                }
+            }
+            TransformCurves curves = new TransformCurves(space, itemSize, ratio, start);
+            if (sSharedCurves.size() >= MAX_SHARED_CURVES) {
+                sSharedCurves.remove(0);
+            }
+            sSharedCurves.add(curves);
+            return curves;
+        }
+    }
+
+    /**
+     * 曲线表是否由该配置计算得出
+     */
+    boolean matches(int space, int itemSize, float ratio, int start) {
+        return mSpace == space && mItemSize == itemSize && mRatio == ratio && mStart == start;
+    }
+
+    /**
+     * 3D旋转角度的归一化系数
+     *
+     * @param total 所有Item间隔之和
+     */
+    static float getRotationScale(long total) {
+        return total > 0 ? (float) (1 / Math.sqrt(total)) : 0f;
+    }
+
+    /**
+     * 将Item中点到中线的距离量化为表下标
+     *
+     * @param distance 距离，正负均可
+     */
+    int indexOf(float distance) {
+        int index = (int) (Math.abs(distance) * SAMPLES_PER_PIXEL + 0.5f);
+        return index < mScales.length ? index : mScales.length - 1;
+    }
+
+    float getScale(int index) {
+        return mScales[index];
+    }
+
+    float getAlpha(int index) {
+        return mAlphas[index];
+    }
+
+    float getGrey(int index) {
+        return mGreys[index];
+    }
+
+    /**
+     * 3D旋转角度的绝对值，方向由调用方根据Item在中线哪一侧决定
+     *
+     * @param scale {@link #getRotationScale(long)}得到的归一化系数
+     */
+    float getRotation(int index, float scale) {
+        return mRotations[index] * scale;
+    }
+
+    private static float clamp(float value, float min, float max) {
+        return value < min ? min : (value > max ? max : value);
+    }
+}
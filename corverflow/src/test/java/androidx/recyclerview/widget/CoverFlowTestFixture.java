@@ -0,0 +1,114 @@
+package androidx.recyclerview.widget;
+
+import android.content.Context;
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.annotation.NonNull;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.savion.corverflow.CoverFlowLayoutManger;
+import com.savion.corverflow.RecyclerCoverFlow;
+
+/**
+ * 测试共用的RecyclerCoverFlow：固定尺寸的Adapter、测量布局与逐帧滚动
+ */
+public final class CoverFlowTestFixture {
+
+    /**
+     * RecyclerCoverFlow的宽高
+     */
+    public static final int SIZE = 1080;
+
+    private CoverFlowTestFixture() {
+    }
+
+    /**
+     * 创建带有50个Item的RecyclerCoverFlow
+     */
+    public static RecyclerCoverFlow createCoverFlow() {
+        return createCoverFlow(ApplicationProvider.getApplicationContext(), new CountingAdapter(50));
+    }
+
+    public static RecyclerCoverFlow createCoverFlow(Context context, RecyclerView.Adapter<?> adapter) {
+        RecyclerCoverFlow coverFlow = new RecyclerCoverFlow(context);
+        coverFlow.setAdapter(adapter);
+        return coverFlow;
+    }
+
+    /**
+     * 按{@link #SIZE}测量并布局
+     */
+    public static void layout(RecyclerView recyclerView) {
+        recyclerView.measure(View.MeasureSpec.makeMeasureSpec(SIZE, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(SIZE, View.MeasureSpec.EXACTLY));
+        recyclerView.layout(0, 0, SIZE, SIZE);
+    }
+
+    /**
+     * 直接驱动LayoutManager滚动，每帧即一次布局
+     *
+     * @param frames     帧数
+     * @param distance   每帧滚动距离
+     * @param turnFrames 每隔多少帧换一次方向，保证非循环模式下不会一直停在边界；小于等于0时不换方向
+     */
+    public static void scroll(RecyclerCoverFlow coverFlow, int frames, int distance, int turnFrames) {
+        CoverFlowLayoutManger layoutManger = coverFlow.getCoverFlowLayout();
+        RecyclerView.Recycler recycler = RecyclerViewAccessor.getRecycler(coverFlow);
+        RecyclerView.State state = RecyclerViewAccessor.getState(coverFlow);
+        for (int i = 0; i < frames; i++) {
+            int delta = turnFrames > 0 && (i / turnFrames) % 2 != 0 ? -distance : distance;
+            if (layoutManger.isHorizontal()) {
+                layoutManger.scrollHorizontallyBy(delta, recycler, state);
+            } else {
+                layoutManger.scrollVerticallyBy(delta, recycler, state);
+            }
+        }
+    }
+
+    /**
+     * 固定尺寸Item的Adapter，统计创建、绑定、回收的次数
+     */
+    public static class CountingAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+        private int mCount;
+        public int creates;
+        public int binds;
+        public int recycles;
+
+        public CountingAdapter(int count) {
+            mCount = count;
+        }
+
+        /**
+         * 修改Item个数，之后需要调用对应的notify方法
+         */
+        public void setItemCount(int count) {
+            mCount = count;
+        }
+
+        @NonNull
+        @Override
+        public RecyclerView.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+            creates++;
+            View view = new View(parent.getContext());
+            view.setLayoutParams(new RecyclerView.LayoutParams(300, 400));
+            return new RecyclerView.ViewHolder(view) {
+            };
+        }
+
+        @Override
+        public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
+            binds++;
+        }
+
+        @Override
+        public int getItemCount() {
+            return mCount;
+        }
+
+        @Override
+        public void onViewRecycled(@NonNull RecyclerView.ViewHolder holder) {
+            recycles++;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package androidx.recyclerview.widget;
+
+/**
+ * 测试辅助类，读取RecyclerView包内可见的Recycler与State，
+ * 以便测试直接驱动LayoutManager的滚动方法，而不经过RecyclerView自身的滚动分发
+ */
+public final class RecyclerViewAccessor {
+
+    private RecyclerViewAccessor() {
+    }
+
+    public static RecyclerView.Recycler getRecycler(RecyclerView recyclerView) {
+        return recyclerView.mRecycler;
+    }
+
+    public static RecyclerView.State getState(RecyclerView recyclerView) {
+        return recyclerView.mState;
+    }
+}
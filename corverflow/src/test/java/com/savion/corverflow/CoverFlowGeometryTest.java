@@ -0,0 +1,122 @@
+package com.savion.corverflow;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link CoverFlowGeometry}的单元测试，在大量偏移量上校验位置与偏移量换算的一致性
+ */
+public class CoverFlowGeometryTest {
+
+    private static CoverFlowGeometry create(int count, int size, float ratio, boolean loop) {
+        CoverFlowGeometry geometry = new CoverFlowGeometry();
+        geometry.getIndex().reset(count, size, ratio);
+        geometry.setLoop(loop);
+        return geometry;
+    }
+
+    @Test
+    public void centerOffset_roundTripsThroughPositionAt() {
+        CoverFlowGeometry geometry = create(37, 300, 0.5f, true);
+        Random random = new Random(7);
+        for (int i = 0; i < 37; i++) {
+            geometry.getIndex().setSize(i, 100 + random.nextInt(400));
+        }
+        for (int index = -500; index <= 500; index++) {
+            long offset = geometry.getCenterOffset(index);
+            assertEquals(index, geometry.getPositionAt(offset));
+            assertEquals(offset, geometry.getSnapOffset(offset));
+        }
+    }
+
+    @Test
+    public void snapOffset_isNearestCenterForMillionsOfOffsets() {
+        CoverFlowGeometry geometry = create(1000, 200, 1.1f, true);
+        long total = geometry.getIndex().getTotal();
+        for (long offset = -2000000; offset < 2000000; offset++) {
+            int index = geometry.getPositionAt(offset);
+            long snap = geometry.getSnapOffset(offset);
+            //对齐后的偏移量与原偏移量相差不超过半个间隔
+            assertTrue(Math.abs(snap - offset) <= 110);
+            assertEquals(snap, geometry.getCenterOffset(index));
+            //相差整圈的偏移量映射到同一个Adapter位置
+            assertEquals(CoverFlowGeometry.toAdapterPosition(index, 1000),
+                    CoverFlowGeometry.toAdapterPosition(geometry.getPositionAt(offset + total), 1000));
+        }
+    }
+
+    @Test
+    public void visibleWindow_matchesLinearScan() {
+        int space = 1080;
+        CoverFlowGeometry geometry = create(50, 400, 0.5f, false);
+        for (long offset = -300; offset <= geometry.getMaxOffset() + 300; offset += 7) {
+            int first = geometry.getFirstVisible(offset, space);
+            int last = geometry.getLastVisible(offset, space, first);
+            for (int i = 0; i < 50; i++) {
+                assertEquals(i >= first && i <= last, geometry.isFrameVisible(i, offset, space));
+            }
+        }
+    }
+
+    @Test
+    public void offsetsBeyondIntRange_stayPixelExact() {
+        //总偏移量超过int范围：200万个Item，每个间隔1500px，再绕若干圈
+        int count = 2000000;
+        CoverFlowGeometry geometry = create(count, 1500, 1f, true);
+        int space = 1080;
+        assertTrue(geometry.getMaxOffset() > Integer.MAX_VALUE);
+        for (int lap = -3; lap <= 3; lap++) {
+            for (int position = count - 3; position < count + 3; position++) {
+                int index = lap * count + position;
+                long offset = geometry.getCenterOffset(index);
+                assertEquals(index, geometry.getPositionAt(offset));
+                assertEquals(offset, geometry.getSnapOffset(offset + 700));
+                //居中Item的屏幕坐标不受偏移量大小影响
+                assertEquals((space - 1500) / 2, geometry.getScreenStart(index, offset, space));
+                assertEquals((space - 1500) / 2 + 1500, geometry.getScreenStart(index + 1, offset, space));
+            }
+        }
+    }
+
+    @Test
+    public void clampOffset_onlyWithoutLoop() {
+        CoverFlowGeometry geometry = create(10, 300, 0.5f, false);
+        assertEquals(0, geometry.clampOffset(-100));
+        assertEquals(geometry.getMaxOffset(), geometry.clampOffset(Integer.MAX_VALUE));
+        geometry.setLoop(true);
+        assertEquals(-100, geometry.clampOffset(-100));
+    }
+
+    @Test
+    public void nearestPosition_takesShortestPathAroundLoop() {
+        CoverFlowGeometry geometry = create(6, 300, 0.5f, true);
+        assertEquals(-2, geometry.getNearestPosition(0, 10000));
+        assertEquals(13, geometry.getNearestPosition(12, 1));
+        assertEquals(3, geometry.getNearestPosition(0, 3));
+        geometry.setLoop(false);
+        assertEquals(5, geometry.getNearestPosition(0, 10000));
+    }
+
+    @Test
+    public void flingTarget_followsDirectionAndLimit() {
+        CoverFlowGeometry geometry = create(100, 300, 0.5f, false);
+        long offset = geometry.getCenterOffset(10) + 20;
+        assertEquals(11, geometry.getFlingTarget(offset, 10, 1, 0));
+        assertEquals(10, geometry.getFlingTarget(offset, -10, -1, 0));
+        assertEquals(13, geometry.getFlingTarget(offset, 100000, 1, 3));
+        assertEquals(0, geometry.getFlingTarget(offset, -100000, -1, 0));
+        assertFalse(geometry.isLoop());
+    }
+
+    @Test
+    public void remapIndex_keepsLap() {
+        assertEquals(-12 + 5, CoverFlowGeometry.remapIndex(-10 + 3, 10, 12, CoverFlowGeometry.UPDATE_ADD, 1, 2, 0));
+        assertEquals(12 + 1, CoverFlowGeometry.remapIndex(20 + 5, 10, 6, CoverFlowGeometry.UPDATE_REMOVE, 1, 4, 0));
+        assertEquals(4, CoverFlowGeometry.remapIndex(2, 10, 10, CoverFlowGeometry.UPDATE_MOVE, 2, 1, 4));
+    }
+}
@@ -0,0 +1,87 @@
+package com.savion.corverflow;
+
+import android.view.View;
+
+import androidx.recyclerview.widget.CoverFlowTestFixture;
+import androidx.recyclerview.widget.CoverFlowTestFixture.CountingAdapter;
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+
+import static androidx.recyclerview.widget.CoverFlowTestFixture.layout;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 可见范围内插入、移动、修改Item后的增量布局，每个可见位置都应有Item
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class IncrementalLayoutTest {
+
+    private static final int CENTER = 10;
+
+    private CountingAdapter mAdapter;
+    private RecyclerCoverFlow mCoverFlow;
+    private int mVisibleCount;
+
+    @Before
+    public void setUp() {
+        mAdapter = new CountingAdapter(50);
+        mCoverFlow = CoverFlowTestFixture.createCoverFlow(ApplicationProvider.getApplicationContext(), mAdapter);
+        layout(mCoverFlow);
+        mCoverFlow.scrollToPosition(CENTER);
+        layout(mCoverFlow);
+        mVisibleCount = mCoverFlow.getCoverFlowLayout().getChildCount();
+        assertTrue(mVisibleCount >= 3);
+        assertVisibleWindowFilled();
+    }
+
+    @Test
+    public void insertInsideVisibleWindow() {
+        mAdapter.setItemCount(51);
+        mAdapter.notifyItemInserted(CENTER + 1);
+        layout(mCoverFlow);
+        assertVisibleWindowFilled();
+    }
+
+    @Test
+    public void moveIntoVisibleWindow() {
+        mAdapter.notifyItemMoved(CENTER + 10, CENTER + 1);
+        layout(mCoverFlow);
+        assertVisibleWindowFilled();
+    }
+
+    @Test
+    public void changeInsideVisibleWindow() {
+        int binds = mAdapter.binds;
+        mAdapter.notifyItemChanged(CENTER + 1);
+        layout(mCoverFlow);
+        assertVisibleWindowFilled();
+        assertTrue(mAdapter.binds > binds);
+    }
+
+    /**
+     * 已添加的Item个数不变，且位置连续、没有重复
+     */
+    private void assertVisibleWindowFilled() {
+        CoverFlowLayoutManger layoutManger = mCoverFlow.getCoverFlowLayout();
+        int childCount = layoutManger.getChildCount();
+        assertEquals(mVisibleCount, childCount);
+        int[] positions = new int[childCount];
+        for (int i = 0; i < childCount; i++) {
+            View child = layoutManger.getChildAt(i);
+            positions[i] = layoutManger.getPosition(child);
+        }
+        Arrays.sort(positions);
+        for (int i = 1; i < childCount; i++) {
+            assertEquals("Visible positions " + Arrays.toString(positions), positions[i - 1] + 1, positions[i]);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.savion.corverflow;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link ItemOffsetIndex}的单元测试，与逐项累加的朴素实现对比
+ */
+public class ItemOffsetIndexTest {
+
+    @Test
+    public void uniformSizes_matchArithmetic() {
+        ItemOffsetIndex index = new ItemOffsetIndex();
+        index.reset(10, 300, 0.5f);
+        assertEquals(1500, index.getTotal());
+        for (int i = 0; i <= 10; i++) {
+            assertEquals(150L * i, index.getStart(i));
+        }
+        assertEquals(0, index.findPosition(0));
+        assertEquals(0, index.findPosition(149));
+        assertEquals(1, index.findPosition(150));
+        assertEquals(9, index.findPosition(1499));
+        assertEquals(9, index.findPosition(100000));
+        assertEquals(0, index.findPosition(-1));
+    }
+
+    @Test
+    public void setSize_updatesPrefixSumsIncrementally() {
+        int count = 1000;
+        int[] extents = new int[count];
+        ItemOffsetIndex index = new ItemOffsetIndex();
+        index.reset(count, 200, 1f);
+        for (int i = 0; i < count; i++) {
+            extents[i] = 200;
+        }
+
+        Random random = new Random(42);
+        for (int round = 0; round < 500; round++) {
+            int position = random.nextInt(count);
+            int size = 50 + random.nextInt(400);
+            boolean changed = extents[position] != size;
+            assertEquals(changed, index.setSize(position, size));
+            extents[position] = size;
+        }
+        assertFalse(index.setSize(0, extents[0]));
+
+        long sum = 0;
+        for (int i = 0; i < count; i++) {
+            assertEquals(sum, index.getStart(i));
+            assertEquals(i, index.findPosition(sum));
+            assertEquals(i, index.findPosition(sum + extents[i] - 1));
+            sum += extents[i];
+        }
+        assertEquals(sum, index.getTotal());
+    }
+
+    @Test
+    public void largeCatalog_stayWithinLongRange() {
+        int count = 100000;
+        ItemOffsetIndex index = new ItemOffsetIndex();
+        index.reset(count, 40000, 1f);
+        assertEquals(40000L * count, index.getTotal());
+        assertTrue(index.getTotal() > Integer.MAX_VALUE);
+        assertEquals(count - 1, index.findPosition(index.getTotal() - 1));
+        index.setSize(count / 2, 80000);
+        assertEquals(40000L * (count + 1), index.getTotal());
+        assertEquals(count / 2 + 1, index.findPosition(index.getStart(count / 2 + 1)));
+    }
+
+    @Test
+    public void insertRemoveMove_keepSizesInOrder() {
+        ItemOffsetIndex index = new ItemOffsetIndex();
+        index.reset(4, 100, 1f);
+        index.setSize(1, 150);
+        index.setSize(3, 250);
+
+        index.insert(2, 2);
+        assertEquals(6, index.getCount());
+        assertSizes(index, 100, 150, 100, 100, 100, 250);
+
+        index.remove(0, 2);
+        assertSizes(index, 100, 100, 100, 250);
+
+        index.move(3, 0);
+        assertSizes(index, 250, 100, 100, 100);
+        index.move(0, 2);
+        assertSizes(index, 100, 100, 250, 100);
+        assertEquals(200, index.getStart(2));
+        assertEquals(2, index.findPosition(449));
+        assertEquals(3, index.findPosition(450));
+    }
+
+    private static void assertSizes(ItemOffsetIndex index, int... sizes) {
+        assertEquals(sizes.length, index.getCount());
+        long sum = 0;
+        for (int i = 0; i < sizes.length; i++) {
+            assertEquals(sizes[i], index.getSize(i));
+            assertEquals(sum, index.getStart(i));
+            sum += index.getExtent(i);
+        }
+        assertEquals(sum, index.getTotal());
+    }
+}
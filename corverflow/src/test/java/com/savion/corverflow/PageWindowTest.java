@@ -0,0 +1,158 @@
+package com.savion.corverflow;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link PageWindow}的单元测试，校验预加载、丢弃以及首部插入移除时数据集中位置不变
+ */
+public class PageWindowTest {
+
+    private static class Recorder implements PageWindow.Callback {
+        final List<Integer> requested = new ArrayList<>();
+        final List<String> changes = new ArrayList<>();
+
+        @Override
+        public void onLoadPage(int page) {
+            requested.add(page);
+        }
+
+        @Override
+        public void onItemRangeInserted(int position, int count) {
+            changes.add("insert " + position + "," + count);
+        }
+
+        @Override
+        public void onItemRangeRemoved(int position, int count) {
+            changes.add("remove " + position + "," + count);
+        }
+
+        @Override
+        public void onItemRangeChanged(int position, int count) {
+            changes.add("change " + position + "," + count);
+        }
+    }
+
+    private static List<Integer> page(int page, int pageSize, int count) {
+        List<Integer> items = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            items.add(page * pageSize + i);
+        }
+        return items;
+    }
+
+    @Test
+    public void placeholders_prefetchInScrollDirectionAndEvictFarthest() {
+        Recorder recorder = new Recorder();
+        PageWindow<Integer> window = new PageWindow<>(10, 3, 5, recorder);
+        window.setTotalCount(95);
+        window.start(0);
+        assertEquals("[0]", recorder.requested.toString());
+        window.onPageLoaded(0, page(0, 10, 10));
+        assertEquals(95, window.size());
+        assertEquals(Integer.valueOf(3), window.get(3));
+        assertNull(window.get(10));
+
+        //距第0页末尾不超过5个时请求第1页，反方向不请求
+        window.onCenterChanged(4, 1);
+        assertEquals("[0]", recorder.requested.toString());
+        window.onCenterChanged(5, 1);
+        assertEquals("[0, 1]", recorder.requested.toString());
+        window.onPageLoaded(1, page(1, 10, 10));
+
+        window.onCenterChanged(36, 1);
+        assertEquals("[0, 1, 3, 4]", recorder.requested.toString());
+        window.onPageLoaded(3, page(3, 10, 10));
+        window.onPageLoaded(4, page(4, 10, 10));
+        //超出3页时丢弃离居中页最远的第0页，Item个数不变
+        assertEquals(3, window.getLoadedPageCount());
+        assertFalse(window.isLoaded(0));
+        assertTrue(recorder.changes.contains("change 0,10"));
+        assertNull(window.get(3));
+        assertEquals(Integer.valueOf(41), window.get(41));
+        assertEquals(95, window.size());
+    }
+
+    @Test
+    public void placeholders_loopWrapsAroundEnd() {
+        Recorder recorder = new Recorder();
+        PageWindow<Integer> window = new PageWindow<>(10, 3, 5, recorder);
+        window.setTotalCount(95);
+        window.setLoop(true);
+        window.start(0);
+        window.onPageLoaded(0, page(0, 10, 10));
+        window.onCenterChanged(2, -1);
+        //向前越过开头，请求最后一页，最后一页只有5个Item
+        assertEquals("[0, 9]", recorder.requested.toString());
+        window.onPageLoaded(9, page(9, 10, 10));
+        assertTrue(recorder.changes.contains("change 90,5"));
+        assertEquals(Integer.valueOf(94), window.get(94));
+    }
+
+    @Test
+    public void withoutPlaceholders_insertAndRemoveKeepDataPositions() {
+        Recorder recorder = new Recorder();
+        PageWindow<Integer> window = new PageWindow<>(10, 2, 3, recorder);
+        window.start(25);
+        assertEquals("[2]", recorder.requested.toString());
+        window.onPageLoaded(2, page(2, 10, 10));
+        assertEquals("[insert 0,10]", recorder.changes.toString());
+
+        //向前预加载，第1页插入到首部，原来的Item在Adapter中的位置后移
+        window.onCenterChanged(2, -1);
+        window.onPageLoaded(1, page(1, 10, 10));
+        assertEquals("insert 0,10", recorder.changes.get(1));
+        assertEquals(20, window.size());
+        assertEquals(22, window.toDataPosition(12));
+        assertEquals(Integer.valueOf(22), window.get(12));
+
+        //向后滚动到第2页末尾时加载第3页，与居中页相邻的第1页仍然保留
+        window.onCenterChanged(18, 1);
+        window.onPageLoaded(3, page(3, 10, 10));
+        assertEquals("insert 20,10", recorder.changes.get(2));
+        assertEquals(3, window.getLoadedPageCount());
+
+        //进入第3页后丢弃首部的第1页，Item前移
+        window.onCenterChanged(22, 1);
+        assertEquals("remove 0,10", recorder.changes.get(3));
+        assertEquals(20, window.size());
+        assertEquals(32, window.toDataPosition(12));
+        assertEquals(Integer.valueOf(32), window.get(12));
+    }
+
+    @Test
+    public void withoutPlaceholders_shortPageEndsData() {
+        Recorder recorder = new Recorder();
+        PageWindow<Integer> window = new PageWindow<>(10, 5, 5, recorder);
+        window.start(0);
+        window.onPageLoaded(0, page(0, 10, 10));
+        window.onCenterChanged(8, 1);
+        window.onPageLoaded(1, page(1, 10, 4));
+        window.onCenterChanged(13, 1);
+        assertEquals("[0, 1]", recorder.requested.toString());
+        assertEquals(14, window.size());
+    }
+
+    @Test
+    public void staleResult_isIgnored() {
+        Recorder recorder = new Recorder();
+        PageWindow<Integer> window = new PageWindow<>(10, 2, 0, recorder);
+        window.setTotalCount(1000);
+        window.start(0);
+        window.onPageLoaded(0, page(0, 10, 10));
+        window.onCenterChanged(500, 1);
+        window.onCenterChanged(900, 1);
+        int changes = recorder.changes.size();
+        //第50页在加载期间离开了窗口
+        window.onPageLoaded(50, page(50, 10, 10));
+        assertEquals(changes, recorder.changes.size());
+        assertFalse(window.isLoaded(50));
+    }
+}
@@ -0,0 +1,106 @@
+package com.savion.corverflow;
+
+import androidx.recyclerview.widget.OrientationHelper;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.lang.management.ManagementFactory;
+
+import static androidx.recyclerview.widget.CoverFlowTestFixture.createCoverFlow;
+import static androidx.recyclerview.widget.CoverFlowTestFixture.layout;
+import static androidx.recyclerview.widget.CoverFlowTestFixture.scroll;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 模拟1000帧滚动，统计滚动过程中主线程的堆内存分配，
+ * 稳定滚动状态下{@link CoverFlowLayoutManger}不应产生任何分配
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class ScrollAllocationTest {
+
+    private static final int FRAME_COUNT = 1000;
+    private static final int WARM_UP_FRAMES = 200;
+    private static final int FRAME_DISTANCE = 37;
+
+    /**
+     * 每100帧换一次方向，保证非循环模式下不会一直停在边界
+     */
+    private static final int TURN_FRAMES = 100;
+
+    @Test
+    public void scroll_default_noAllocation() {
+        RecyclerCoverFlow coverFlow = createCoverFlow();
+        assertNoAllocation(coverFlow);
+    }
+
+    @Test
+    public void scroll_greyAlpha3D_noAllocation() {
+        RecyclerCoverFlow coverFlow = createCoverFlow();
+        coverFlow.setGreyItem(true);
+        coverFlow.setAlphaItem(true);
+        coverFlow.set3DItem(true);
+        assertNoAllocation(coverFlow);
+    }
+
+    @Test
+    public void scroll_loopHorizontal_noAllocation() {
+        RecyclerCoverFlow coverFlow = createCoverFlow();
+        coverFlow.setLoop();
+        coverFlow.setOrientation(OrientationHelper.HORIZONTAL);
+        assertNoAllocation(coverFlow);
+    }
+
+    @Test
+    public void scroll_withMetricsListener_noAllocation() {
+        RecyclerCoverFlow coverFlow = createCoverFlow();
+        coverFlow.setGreyItem(true);
+        CountingMetricsListener listener = new CountingMetricsListener();
+        coverFlow.setMetricsListener(listener);
+        assertNoAllocation(coverFlow);
+        assertTrue(listener.passes >= WARM_UP_FRAMES + FRAME_COUNT);
+        assertTrue(listener.attached > 0);
+        assertTrue(listener.recycled > 0);
+        assertTrue(listener.layoutNanos > 0);
+    }
+
+    private void assertNoAllocation(RecyclerCoverFlow coverFlow) {
+        layout(coverFlow);
+
+        //预热：让回收池、缓存与灰度画笔等延迟创建的对象先分配完成
+        scroll(coverFlow, WARM_UP_FRAMES, FRAME_DISTANCE, TURN_FRAMES);
+
+        com.sun.management.ThreadMXBean threadBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long calibrationStart = threadBean.getThreadAllocatedBytes(threadId);
+        long calibrationEnd = threadBean.getThreadAllocatedBytes(threadId);
+        long overhead = calibrationEnd - calibrationStart;
+
+        long start = threadBean.getThreadAllocatedBytes(threadId);
+        scroll(coverFlow, FRAME_COUNT, FRAME_DISTANCE, TURN_FRAMES);
+        long end = threadBean.getThreadAllocatedBytes(threadId);
+
+        assertEquals("Bytes allocated during " + FRAME_COUNT + " scroll frames", 0, end - start - overhead);
+    }
+
+    private static class CountingMetricsListener implements CoverFlowMetricsListener {
+        int passes;
+        int attached;
+        int recycled;
+        long layoutNanos;
+
+        @Override
+        public void onLayoutPass(long layoutNanos, int created, int rebound, int recycled, int attached,
+                                 long offset, int velocity, int source) {
+            passes++;
+            this.attached += attached;
+            this.recycled += recycled;
+            this.layoutNanos += layoutNanos;
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package com.savion.corverflow;
+
+import android.app.Activity;
+import android.view.ViewGroup;
+
+import androidx.recyclerview.widget.CoverFlowTestFixture;
+import androidx.recyclerview.widget.CoverFlowTestFixture.CountingAdapter;
+import androidx.recyclerview.widget.OrientationHelper;
+import androidx.recyclerview.widget.RecyclerView;
+
+import org.junit.Assume;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 完整的RecyclerCoverFlow滚动基准测试
+ * <p>对10、1000、100000个Item，每种效果预设与两个方向，依次执行拖拽、惯性滑动、smoothScrollToPosition、
+ * randomSmoothScrollToPosition，统计每次布局的耗时、每次布局创建/绑定/回收的Item个数与堆内存分配，
+ * 结果写入JSON文件，比较两个版本时对比两份结果即可
+ * <p>耗时取自{@link CoverFlowMetricsListener}回调的布局耗时，只包含LayoutManager的布局，
+ * 不包含主线程消息循环中的其他工作
+ * <p>耗时较长，默认跳过，运行：
+ * <pre>
+ * ./gradlew :corverflow:testDebugUnitTest --tests '*ScrollBenchmark' -PcoverflowBenchmark=true [-PcoverflowBenchmarkLabel=v1.0]
+ * </pre>
+ * 结果保存在 corverflow/build/reports/coverflow-benchmark/results-&lt;label&gt;.json
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class ScrollBenchmark {
+
+    private static final int[] ITEM_COUNTS = {10, 1000, 100000};
+    private static final String[] PRESETS = {"default", "flat", "grey", "alpha", "3d", "loop"};
+    private static final int[] ORIENTATIONS = {OrientationHelper.VERTICAL, OrientationHelper.HORIZONTAL};
+
+    private static final long FRAME_MILLIS = 16;
+    private static final int DRAG_FRAMES = 240;
+    private static final int DRAG_DISTANCE = 37;
+    private static final int FLING_VELOCITY = 6000;
+    private static final int MAX_ANIMATION_FRAMES = 600;
+
+    @Test
+    public void scrollBenchmark() throws IOException {
+        Assume.assumeTrue("Set -PcoverflowBenchmark=true to run", Boolean.getBoolean("coverflow.benchmark"));
+        Activity activity = Robolectric.buildActivity(Activity.class).setup().get();
+        List<Result> results = new ArrayList<>();
+        for (int count : ITEM_COUNTS) {
+            for (String preset : PRESETS) {
+                for (int orientation : ORIENTATIONS) {
+                    run(activity, count, preset, orientation, results);
+                }
+            }
+        }
+        write(results);
+    }
+
+    private void run(Activity activity, int count, String preset, int orientation, List<Result> results) {
+        CountingAdapter adapter = new CountingAdapter(count);
+        RecyclerCoverFlow coverFlow = CoverFlowTestFixture.createCoverFlow(activity, adapter);
+        CoverFlowLayoutManger.Editor editor = coverFlow.edit().setOrientation(orientation);
+        switch (preset) {
+            case "flat":
+                editor.setFlatFlow(true);
+                break;
+            case "grey":
+                editor.setGreyItem(true);
+                break;
+            case "alpha":
+                editor.setAlphaItem(true);
+                break;
+            case "3d":
+                editor.set3DItem(true);
+                break;
+            case "loop":
+                editor.setLoop(true);
+                break;
+            default:
+                break;
+        }
+        editor.commit();
+        activity.setContentView(coverFlow,
+                new ViewGroup.LayoutParams(CoverFlowTestFixture.SIZE, CoverFlowTestFixture.SIZE));
+        CoverFlowTestFixture.layout(coverFlow);
+        idle();
+
+        Meter meter = new Meter(adapter);
+        coverFlow.setMetricsListener(meter);
+        String config = count + "/" + preset + "/" + (orientation == OrientationHelper.VERTICAL ? "vertical" : "horizontal");
+
+        //拖拽：直接驱动LayoutManager滚动，每次调用即一次布局，每60帧换一次方向
+        meter.start();
+        CoverFlowTestFixture.scroll(coverFlow, DRAG_FRAMES, DRAG_DISTANCE, 60);
+        results.add(meter.finish(config, "drag"));
+        idle();
+
+        //惯性滑动：经过RecyclerView的OnFlingListener，由SmoothScroller逐帧驱动
+        meter.start();
+        for (int direction : new int[]{1, -1, 1}) {
+            int velocity = direction * FLING_VELOCITY;
+            if (coverFlow.getCoverFlowLayout().isHorizontal()) {
+                coverFlow.fling(velocity, 0);
+            } else {
+                coverFlow.fling(0, velocity);
+            }
+            animate(coverFlow);
+        }
+        results.add(meter.finish(config, "fling"));
+
+        //平滑滚动：近距离与远距离各一次
+        meter.start();
+        coverFlow.smoothScrollToPosition(Math.min(count - 1, coverFlow.getSelectedPos() + 3));
+        animate(coverFlow);
+        coverFlow.smoothScrollToPosition(count / 2);
+        animate(coverFlow);
+        results.add(meter.finish(config, "smoothScrollToPosition"));
+
+        //随机滚动
+        meter.start();
+        coverFlow.randomSmoothScrollToPosition(1000L);
+        animate(coverFlow);
+        results.add(meter.finish(config, "randomSmoothScrollToPosition"));
+
+        coverFlow.setMetricsListener(null);
+        coverFlow.onDestory();
+    }
+
+    /**
+     * 逐帧推进主线程，直到滚动停止
+     */
+    private void animate(RecyclerCoverFlow coverFlow) {
+        for (int i = 0; i < MAX_ANIMATION_FRAMES; i++) {
+            ShadowLooper.idleMainLooper(FRAME_MILLIS, TimeUnit.MILLISECONDS);
+            if (coverFlow.getScrollState() == RecyclerView.SCROLL_STATE_IDLE) {
+                return;
+            }
+        }
+    }
+
+    private static void idle() {
+        ShadowLooper.idleMainLooper(FRAME_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private static void write(List<Result> results) throws IOException {
+        File dir = new File(System.getProperty("coverflow.benchmark.output", "build/reports/coverflow-benchmark"));
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+        String label = System.getProperty("coverflow.benchmark.label", "current");
+        StringBuilder json = new StringBuilder();
+        json.append("{\"label\":\"").append(label).append("\",\"results\":[\n");
+        for (int i = 0; i < results.size(); i++) {
+            results.get(i).appendTo(json);
+            json.append(i < results.size() - 1 ? ",\n" : "\n");
+        }
+        json.append("]}\n");
+        try (Writer writer = new OutputStreamWriter(
+                new FileOutputStream(new File(dir, "results-" + label + ".json")), Charset.forName("UTF-8"))) {
+            writer.write(json.toString());
+        }
+    }
+
+    /**
+     * 一个场景的统计：每次布局的耗时、创建/绑定/回收个数与堆内存分配
+     */
+    private static final class Meter implements CoverFlowMetricsListener {
+        private final CountingAdapter mAdapter;
+        private final com.sun.management.ThreadMXBean mThreadBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        private long[] mPassNanos = new long[1024];
+        private int mPasses;
+        private boolean mRecording;
+        private long mStartBytes;
+        private int mStartCreates;
+        private int mStartBinds;
+        private int mStartRecycles;
+
+        Meter(CountingAdapter adapter) {
+            mAdapter = adapter;
+        }
+
+        void start() {
+            mPasses = 0;
+            mRecording = true;
+            mStartCreates = mAdapter.creates;
+            mStartBinds = mAdapter.binds;
+            mStartRecycles = mAdapter.recycles;
+            mStartBytes = mThreadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+
+        @Override
+        public void onLayoutPass(long layoutNanos, int created, int rebound, int recycled, int attached,
+                                 long offset, int velocity, int source) {
+            if (!mRecording) {
+                return;
+            }
+            if (mPasses == mPassNanos.length) {
+                mPassNanos = Arrays.copyOf(mPassNanos, mPasses * 2);
+            }
+            mPassNanos[mPasses++] = layoutNanos;
+        }
+
+        Result finish(String config, String scenario) {
+            mRecording = false;
+            long bytes = mThreadBean.getThreadAllocatedBytes(Thread.currentThread().getId()) - mStartBytes;
+            Result result = new Result(config, scenario);
+            int passes = Math.max(mPasses, 1);
+            long[] sorted = Arrays.copyOf(mPassNanos, mPasses);
+            Arrays.sort(sorted);
+            long sum = 0;
+            for (long nanos : sorted) {
+                sum += nanos;
+            }
+            result.passes = mPasses;
+            result.meanNanos = sum / passes;
+            result.p50Nanos = percentile(sorted, 0.5);
+            result.p95Nanos = percentile(sorted, 0.95);
+            result.maxNanos = mPasses > 0 ? sorted[mPasses - 1] : 0;
+            result.createsPerPass = (mAdapter.creates - mStartCreates) / (double) passes;
+            result.bindsPerPass = (mAdapter.binds - mStartBinds) / (double) passes;
+            result.recyclesPerPass = (mAdapter.recycles - mStartRecycles) / (double) passes;
+            result.allocatedBytesPerPass = bytes / passes;
+            return result;
+        }
+
+        private static long percentile(long[] sorted, double p) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            return sorted[Math.min(sorted.length - 1, (int) (sorted.length * p))];
+        }
+    }
+
+    private static final class Result {
+        final String config;
+        final String scenario;
+        int passes;
+        long meanNanos;
+        long p50Nanos;
+        long p95Nanos;
+        long maxNanos;
+        double createsPerPass;
+        double bindsPerPass;
+        double recyclesPerPass;
+        long allocatedBytesPerPass;
+
+        Result(String config, String scenario) {
+            this.config = config;
+            this.scenario = scenario;
+        }
+
+        void appendTo(StringBuilder json) {
+            json.append(String.format(Locale.US,
+                    "{\"config\":\"%s\",\"scenario\":\"%s\",\"passes\":%d,\"meanNanos\":%d,\"p50Nanos\":%d,"
+                            + "\"p95Nanos\":%d,\"maxNanos\":%d,\"createsPerPass\":%.3f,\"bindsPerPass\":%.3f,"
+                            + "\"recyclesPerPass\":%.3f,\"allocatedBytesPerPass\":%d}",
+                    config, scenario, passes, meanNanos, p50Nanos, p95Nanos, maxNanos,
+                    createsPerPass, bindsPerPass, recyclesPerPass, allocatedBytesPerPass));
+        }
+    }
+}
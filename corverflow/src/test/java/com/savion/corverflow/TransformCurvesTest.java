@@ -0,0 +1,43 @@
+package com.savion.corverflow;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * {@link TransformCurves}的单元测试，与直接计算的曲线对比
+ */
+public class TransformCurvesTest {
+
+    @Test
+    public void lookup_matchesDirectComputation() {
+        int space = 1080;
+        int itemSize = 400;
+        float ratio = 0.5f;
+        int start = (space - itemSize) / 2;
+        long total = 200L * 50;
+        TransformCurves curves = TransformCurves.obtain(space, itemSize, ratio, start);
+        float rotationScale = TransformCurves.getRotationScale(total);
+        float fadeDistance = start + itemSize / ratio;
+        for (float distance = -1500f; distance <= 1500f; distance += 0.5f) {
+            int sample = curves.indexOf(distance);
+            float d = Math.min(Math.abs(distance), space);
+            float fade = 1 - d / fadeDistance;
+            assertEquals(Math.max(0f, Math.min(fade, 1f)), curves.getScale(sample), 1e-4f);
+            assertEquals(Math.max(0.3f, Math.min(fade, 1f)), curves.getAlpha(sample), 1e-4f);
+            float grey = Math.max(0.1f, Math.min(1 - d / (space / 2f), 1f));
+            assertEquals((float) Math.pow(grey, .8), curves.getGrey(sample), 1e-4f);
+            assertEquals(50f * (float) Math.sqrt(d / total), curves.getRotation(sample, rotationScale), 1e-3f);
+        }
+    }
+
+    @Test
+    public void obtain_sharesIdenticalConfigurations() {
+        TransformCurves first = TransformCurves.obtain(720, 300, 0.5f, 210);
+        assertSame(first, TransformCurves.obtain(720, 300, 0.5f, 210));
+        assertNotSame(first, TransformCurves.obtain(720, 300, 0.6f, 210));
+        assertNotSame(first, TransformCurves.obtain(720, 300, 0.5f, 220));
+    }
+}
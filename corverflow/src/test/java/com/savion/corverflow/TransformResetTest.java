@@ -0,0 +1,87 @@
+package com.savion.corverflow;
+
+import android.view.View;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static androidx.recyclerview.widget.CoverFlowTestFixture.createCoverFlow;
+import static androidx.recyclerview.widget.CoverFlowTestFixture.layout;
+import static androidx.recyclerview.widget.CoverFlowTestFixture.scroll;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 从缓存或缓存池中取出的Item不应带有旧配置或其他RecyclerCoverFlow留下的变换
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class TransformResetTest {
+
+    private static final int FRAME_DISTANCE = 37;
+
+    @Test
+    public void configChange_viewsScrolledInFromPoolHaveNoStaleTransform() {
+        RecyclerCoverFlow coverFlow = createCoverFlow();
+        coverFlow.edit().setGreyItem(true).setAlphaItem(true).set3DItem(true).commit();
+        layout(coverFlow);
+        //让带有灰度、半透与旋转的Item进入缓存与缓存池
+        scroll(coverFlow, 60, FRAME_DISTANCE, 0);
+        assertTrue(hasTransformedChild(coverFlow));
+
+        coverFlow.edit().setGreyItem(false).setAlphaItem(false).set3DItem(false).commit();
+        layout(coverFlow);
+        scroll(coverFlow, 60, FRAME_DISTANCE, 0);
+        assertNoStaleTransform(coverFlow);
+    }
+
+    @Test
+    public void sharedPool_flatRowDoesNotInheritTransformsFrom3DRow() {
+        CoverFlowViewPool pool = new CoverFlowViewPool();
+        RecyclerCoverFlow row3D = createCoverFlow();
+        row3D.setRecycledViewPool(pool);
+        row3D.edit().setGreyItem(true).setAlphaItem(true).set3DItem(true).commit();
+        layout(row3D);
+        pool.register(row3D);
+        scroll(row3D, 60, FRAME_DISTANCE, 0);
+        assertTrue(hasTransformedChild(row3D));
+        assertTrue(pool.getRecycledViewCount(0) > 0);
+
+        RecyclerCoverFlow flatRow = createCoverFlow();
+        flatRow.setRecycledViewPool(pool);
+        flatRow.edit().setFlatFlow(true).commit();
+        pool.register(flatRow);
+        layout(flatRow);
+        assertNoStaleTransform(flatRow);
+        scroll(flatRow, 60, FRAME_DISTANCE, 0);
+        assertNoStaleTransform(flatRow);
+    }
+
+    private static boolean hasTransformedChild(RecyclerCoverFlow coverFlow) {
+        for (int i = 0; i < coverFlow.getChildCount(); i++) {
+            View child = coverFlow.getChildAt(i);
+            if (child.getRotationX() != 0f || child.getRotationY() != 0f
+                    || child.getAlpha() != 1f || child.getLayerType() != View.LAYER_TYPE_NONE) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 关闭了灰度、半透与3D后，所有Item都不应再有旋转、半透与灰度图层
+     */
+    private static void assertNoStaleTransform(RecyclerCoverFlow coverFlow) {
+        assertTrue(coverFlow.getChildCount() > 0);
+        for (int i = 0; i < coverFlow.getChildCount(); i++) {
+            View child = coverFlow.getChildAt(i);
+            assertEquals(0f, child.getRotationX(), 0f);
+            assertEquals(0f, child.getRotationY(), 0f);
+            assertEquals(1f, child.getAlpha(), 0f);
+            assertEquals(0f, child.getTranslationZ(), 0f);
+            assertEquals(View.LAYER_TYPE_NONE, child.getLayerType());
+        }
+    }
+}